@@ -1,14 +1,45 @@
 package efrei.bankbackend;
 
+import efrei.bankbackend.seeders.SyntheticDataGenerator;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 
+import java.util.Arrays;
+import java.util.stream.Stream;
+
 @SpringBootApplication
+@EnableScheduling
 @EnableMethodSecurity()
 public class BankBackendApplication {
 
+    /**
+     * First argument running the synthetic data generator, then exiting, instead of serving requests,
+     * e.g. {@code java -jar bank-backend.jar generate-data --bank.synthetic.users=5000000}.
+     */
+    public static final String GENERATE_DATA_COMMAND = "generate-data";
+
     public static void main(String[] args) {
+        if (args.length > 0 && GENERATE_DATA_COMMAND.equals(args[0])) {
+            generateData(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         SpringApplication.run(BankBackendApplication.class, args);
     }
+
+    /**
+     * Starts the application with the synthetic profile on a random port, so it never clashes with
+     * a running instance, and exits once the generator is done.
+     */
+    private static void generateData(String[] args) {
+        SpringApplication application = new SpringApplication(BankBackendApplication.class);
+        application.setAdditionalProfiles(SyntheticDataGenerator.PROFILE);
+
+        String[] arguments = Stream.concat(Stream.of("--server.port=0"), Arrays.stream(args)).toArray(String[]::new);
+        ConfigurableApplicationContext context = application.run(arguments);
+        System.exit(SpringApplication.exit(context));
+    }
 }
\ No newline at end of file
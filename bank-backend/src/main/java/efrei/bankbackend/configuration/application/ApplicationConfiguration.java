@@ -1,101 +1,102 @@
 package efrei.bankbackend.configuration.application;
 
-import efrei.bankbackend.exceptions.BaseException;
-import efrei.bankbackend.exceptions.InvalidPasswordOrEmailException;
-import efrei.bankbackend.repositories.UserAccountRepository;
+import efrei.bankbackend.services.UserAccountCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.AuthenticationProvider;
-import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
-import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Configuration class for application-level security and authentication setup.
  *
  * This class defines beans for managing user authentication, including user details service,
- * password encoding, and the authentication provider. It integrates with Spring Security to
- * provide authentication mechanisms.
+ * password encoding, and the executor running password hashing. Logins are verified by
+ * {@link efrei.bankbackend.services.UserAccountService}, not by a Spring Security authentication provider.
  */
 @Configuration
 public class ApplicationConfiguration {
 
-    private final UserAccountRepository userAccountRepository;
+    private final UserAccountCache userAccountCache;
+
+    @Value("${security.password.bcrypt-strength}")
+    private int bcryptStrength;
+
+    @Value("${security.password.hashing-threads}")
+    private int hashingThreads;
+
+    @Value("${security.password.hashing-queue-capacity}")
+    private int hashingQueueCapacity;
 
     /**
      * Constructor for ApplicationConfiguration.
      *
-     * @param userAccountRepository The repository for managing client data.
+     * @param userAccountCache The cache of user accounts by email.
      */
-    public ApplicationConfiguration(UserAccountRepository userAccountRepository) {
-        this.userAccountRepository = userAccountRepository;
+    public ApplicationConfiguration(UserAccountCache userAccountCache) {
+        this.userAccountCache = userAccountCache;
     }
 
     /**
      * Bean definition for UserDetailsService.
      *
-     * This service is used by Spring Security to load user-specific data during authentication.
-     * It retrieves user details from the database based on the provided email (username).
+     * This service is used by Spring Security to load user-specific data. It retrieves user details
+     * through the user account cache, so that it never bypasses the cache in front of the database.
+     * Defining it also keeps Spring Boot from registering a default in-memory user.
      *
-     * @return A UserDetailsService implementation that fetches user data from the database.
-     * @throws BaseException If the user is not found in the database or the password is invalid.
+     * @return A UserDetailsService implementation that fetches user data through the cache.
      */
     @Bean
-    UserDetailsService userDetailsService() throws BaseException {
-        try {
-            return email -> userAccountRepository.findByEmail(email)
-                    .orElseThrow(() -> new UsernameNotFoundException("User not found"));
-        } catch (UsernameNotFoundException e) {
-            throw new InvalidPasswordOrEmailException();
-        }
+    UserDetailsService userDetailsService() {
+        return email -> userAccountCache.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
     /**
      * Bean definition for BCryptPasswordEncoder.
      *
      * This encoder is used to hash passwords securely using the BCrypt hashing function.
-     * It is recommended for storing passwords in a secure manner.
+     * It is recommended for storing passwords in a secure manner. The cost factor is configurable,
+     * and hashes using a lower cost are reported by {@code upgradeEncoding} so they can be rehashed.
      *
      * @return A BCryptPasswordEncoder instance for password hashing.
      */
     @Bean
     BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
-    /**
-     * Bean definition for AuthenticationManager.
-     *
-     * This manager is responsible for processing authentication requests. It integrates with
-     * Spring Security to delegate the authentication process to the appropriate provider.
-     *
-     * @param config The authentication configuration provided by Spring Security.
-     * @return An AuthenticationManager instance for managing authentication.
-     * @throws Exception If an error occurs while configuring the authentication manager.
-     */
-    @Bean
-    public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
-        return config.getAuthenticationManager();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     /**
-     * Bean definition for AuthenticationProvider.
+     * Bean definition for the password hashing executor.
      *
-     * This provider is responsible for handling authentication by using the
-     * {@link UserDetailsService} and {@link BCryptPasswordEncoder} for verifying credentials.
-     * It is configured to authenticate users based on their email and password.
+     * BCrypt is deliberately CPU-heavy, so password verification and hashing run on this dedicated,
+     * size-bounded pool instead of on request threads. Once both the threads and the queue are full,
+     * new tasks are rejected immediately, so that a login storm cannot starve the rest of the traffic.
      *
-     * @throws BaseException if authentication fails
-     * @return A DaoAuthenticationProvider instance for authentication.
+     * @return A bounded ExecutorService rejecting tasks when saturated.
      */
-    @Bean
-    AuthenticationProvider authenticationProvider() throws BaseException {
-        DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider(userDetailsService());
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService passwordHashingExecutor() {
+        ThreadFactory threadFactory = Thread.ofPlatform()
+                .name("password-hashing-", 0)
+                .daemon(true)
+                .factory();
 
-        authProvider.setPasswordEncoder(passwordEncoder());
-        return authProvider;
+        return new ThreadPoolExecutor(
+                hashingThreads,
+                hashingThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(hashingQueueCapacity),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy()
+        );
     }
 }
\ No newline at end of file
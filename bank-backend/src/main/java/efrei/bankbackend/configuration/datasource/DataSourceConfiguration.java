@@ -0,0 +1,128 @@
+package efrei.bankbackend.configuration.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration class for the primary and replica connection pools.
+ *
+ * This class builds one pool for the primary and one per configured replica, and exposes them to
+ * the application behind a single routing data source. Without any replica, every connection goes
+ * to the primary, exactly as with a plain pool.
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @Value("${bank.datasource.pool-size}")
+    private int poolSize;
+
+    @Value("${bank.datasource.acquire-timeout}")
+    private Duration acquireTimeout;
+
+    @Value("${bank.datasource.replica-urls}")
+    private String[] replicaUrls;
+
+    @Value("${bank.datasource.replica-pool-size}")
+    private int replicaPoolSize;
+
+    @Value("${bank.datasource.replica-max-lag}")
+    private Duration replicaMaxLag;
+
+    @Value("${bank.datasource.replica-lag-check}")
+    private boolean replicaLagCheck;
+
+    @Value("${bank.datasource.sticky-window}")
+    private Duration stickyWindow;
+
+    /**
+     * Bean definition for the primary connection pool.
+     *
+     * @return The pool of connections to the primary database.
+     */
+    @Bean(destroyMethod = "close")
+    HikariDataSource primaryDataSource() {
+        HikariDataSource primary = pool("primary", url);
+        primary.setMaximumPoolSize(poolSize);
+        return primary;
+    }
+
+    /**
+     * Bean definition for the routing data source.
+     *
+     * Every pool is bounded by a semaphore with as many permits as connections, so that callers
+     * beyond the pool size, typically virtual threads, wait in line outside of the pool.
+     *
+     * @param primaryDataSource The primary connection pool.
+     * @param meterRegistry     The registry of the waiting callers gauges.
+     * @return A data source routing read-only transactions to the replicas, which it owns.
+     */
+    @Bean(destroyMethod = "close")
+    ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String replicaUrl : replicaUrls) {
+            if (replicaUrl.isBlank())
+                continue;
+
+            HikariDataSource replica = pool("replica-" + replicas.size(), replicaUrl.trim());
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            replicas.put(replica.getPoolName(), bounded(replica, meterRegistry));
+        }
+
+        return new ReplicaRoutingDataSource(bounded(primaryDataSource, meterRegistry), replicas,
+                replicaMaxLag, replicaLagCheck, stickyWindow);
+    }
+
+    /**
+     * Bean definition for the data source used by the application.
+     *
+     * Connections are only fetched from the routing data source when the first statement runs,
+     * once the read-only flag of the current transaction is known.
+     *
+     * @param replicaRoutingDataSource The routing data source.
+     * @return A lazy proxy of the routing data source.
+     */
+    @Bean
+    @Primary
+    DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    private BoundedDataSource bounded(HikariDataSource pool, MeterRegistry meterRegistry) {
+        BoundedDataSource bounded = new BoundedDataSource(pool, pool.getMaximumPoolSize(), acquireTimeout);
+        Gauge.builder("bank.datasource.waiting", bounded, BoundedDataSource::getWaiting)
+                .description("Callers waiting for a database connection permit")
+                .tag("pool", pool.getPoolName())
+                .register(meterRegistry);
+        return bounded;
+    }
+
+    private HikariDataSource pool(String name, String jdbcUrl) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(jdbcUrl);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        return pool;
+    }
+}
\ No newline at end of file
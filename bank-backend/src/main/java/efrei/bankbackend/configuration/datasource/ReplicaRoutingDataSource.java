@@ -0,0 +1,213 @@
+package efrei.bankbackend.configuration.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data source sending read-only transactions to healthy replicas, and everything else to the primary.
+ *
+ * <p>The routing key is resolved when a connection is actually fetched, which is why this data source
+ * must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: by the
+ * time the first statement runs, the transaction read-only flag is known.</p>
+ *
+ * <p>Replicas are picked round-robin among those that passed their last health check, which verifies
+ * the connection and, unless disabled, that the replication lag is below a threshold. Reads fall back
+ * to the primary when no replica is healthy. A user whose write transaction committed less than a
+ * sticky window ago reads from the primary as well, so their own writes are always visible to them.</p>
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private static final String LAG_QUERY = "SHOW REPLICA STATUS";
+
+    private static final String LAG_COLUMN = "Seconds_Behind_Source";
+
+    private final List<Replica> replicas;
+
+    private final AtomicInteger next;
+
+    private final Cache<String, Boolean> recentWriters;
+
+    private final Duration maxLag;
+
+    private final boolean lagCheck;
+
+    /**
+     * Creates a new {@code ReplicaRoutingDataSource}.
+     *
+     * @param primary      the primary, used for writes and as a fallback
+     * @param replicas     the replicas by name, unhealthy until their first health check
+     * @param maxLag       the replication lag above which a replica is skipped
+     * @param lagCheck     whether to check the replication lag, or only the connection
+     * @param stickyWindow how long a user reads from the primary after a write
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    Duration maxLag, boolean lagCheck, Duration stickyWindow) {
+        this(primary, replicas, maxLag, lagCheck, stickyWindow, Ticker.systemTicker());
+    }
+
+    ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                             Duration maxLag, boolean lagCheck, Duration stickyWindow, Ticker ticker) {
+        this.replicas = new ArrayList<>();
+        this.next = new AtomicInteger();
+        this.maxLag = maxLag;
+        this.lagCheck = lagCheck;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(stickyWindow)
+                .ticker(ticker)
+                .build();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            targets.put(name, dataSource);
+            this.replicas.add(new Replica(name, dataSource));
+        });
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWriter();
+            return PRIMARY;
+        }
+
+        String user = currentUser();
+        if (user != null && recentWriters.getIfPresent(user) != null)
+            return PRIMARY;
+
+        int count = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(count, 1));
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (replica.healthy)
+                return replica.name;
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * Checks every replica, and takes it in or out of the rotation accordingly.
+     */
+    @Scheduled(fixedDelayString = "${bank.datasource.replica-check-interval}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy = isHealthy(replica);
+            if (healthy != replica.healthy)
+                log.info("Replica {} is now {}.", replica.name, healthy ? "in rotation" : "out of rotation");
+            replica.healthy = healthy;
+        }
+    }
+
+    /**
+     * Closes the replica pools, the primary being managed on its own.
+     */
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            DataSource dataSource = replica.dataSource instanceof DelegatingDataSource delegating
+                    ? delegating.getTargetDataSource()
+                    : replica.dataSource;
+            if (dataSource instanceof AutoCloseable closeable)
+                closeable.close();
+        }
+    }
+
+    private boolean isHealthy(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection()) {
+            if (!lagCheck)
+                return connection.isValid(1);
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet status = statement.executeQuery(LAG_QUERY)) {
+                if (!status.next()) {
+                    log.warn("Replica {} does not replicate from any source.", replica.name);
+                    return false;
+                }
+
+                long lag = status.getLong(LAG_COLUMN);
+                return !status.wasNull() && lag <= maxLag.toSeconds();
+            }
+        } catch (SQLException e) {
+            log.debug("Health check of replica {} failed: {}", replica.name, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Makes a user read from the primary for a while, for writes committed on their behalf by another
+     * thread, which has no security context to tell whose write it was.
+     *
+     * @param user the user whose write just committed
+     */
+    public void rememberWriter(String user) {
+        recentWriters.put(user, Boolean.TRUE);
+    }
+
+    /**
+     * Makes the current user read from the primary for a while once the current transaction committed.
+     */
+    private void rememberWriter() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+
+        String user = currentUser();
+        if (user == null)
+            return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                rememberWriter(user);
+            }
+        });
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken)
+            return null;
+        return authentication.getName();
+    }
+
+    private static final class Replica {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private volatile boolean healthy;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,184 @@
+package efrei.bankbackend.configuration.diagnostics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Actuator endpoint reporting where virtual threads got pinned to their carrier.
+ *
+ * <p>A JFR stream captures every {@code jdk.VirtualThreadPinned} event longer than a threshold, typically
+ * a blocking call made while holding a monitor, in Hibernate, the MySQL driver or application code.
+ * Events are aggregated by their first application frame, so {@code GET /actuator/pinning} lists the
+ * offending call sites by number of events, with a sample stack trace each. {@code DELETE} resets them.</p>
+ */
+@Slf4j
+@Component
+@Endpoint(id = "pinning")
+public class VirtualThreadPinningEndpoint {
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private static final int MAX_SITES = 256;
+
+    private static final int MAX_FRAMES = 16;
+
+    private static final String OTHER_SITES = "other";
+
+    private final Map<String, Site> sites;
+
+    private final Counter events;
+
+    @Value("${bank.diagnostics.pinning.enabled}")
+    private boolean enabled;
+
+    @Value("${bank.diagnostics.pinning.threshold}")
+    private Duration threshold;
+
+    private RecordingStream stream;
+
+    /**
+     * A call site where virtual threads got pinned.
+     *
+     * @param location    the first application frame
+     * @param events      the number of events
+     * @param totalMillis the total pinned time
+     * @param maxMillis   the longest pinned time
+     * @param stackTrace  the top frames of the first event
+     */
+    public record PinnedSite(String location, long events, double totalMillis, double maxMillis, List<String> stackTrace) { }
+
+    @Autowired
+    public VirtualThreadPinningEndpoint(MeterRegistry meterRegistry) {
+        this.sites = new ConcurrentHashMap<>();
+        this.events = Counter.builder("bank.virtual-threads.pinned")
+                .description("Virtual threads pinned to their carrier for longer than the threshold")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled)
+            return;
+
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::record);
+        stream.startAsync();
+        log.info("Recording virtual thread pinning longer than {}.", threshold);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null)
+            stream.close();
+    }
+
+    /**
+     * Returns the pinning call sites, most frequent first.
+     */
+    @ReadOperation
+    public Map<String, Object> pinning() {
+        List<PinnedSite> report = sites.entrySet()
+                .stream()
+                .map(entry -> entry.getValue().report(entry.getKey()))
+                .sorted(Comparator.comparingLong(PinnedSite::events).reversed())
+                .toList();
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", enabled);
+        body.put("threshold", threshold.toString());
+        body.put("events", (long) events.count());
+        body.put("sites", report);
+        return body;
+    }
+
+    /**
+     * Forgets every recorded call site.
+     */
+    @DeleteOperation
+    public void reset() {
+        sites.clear();
+    }
+
+    private void record(RecordedEvent event) {
+        events.increment();
+
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace == null ? List.of() : stackTrace.getFrames();
+        String location = location(frames);
+
+        Site site = sites.get(location);
+        if (site == null) {
+            String key = sites.size() < MAX_SITES ? location : OTHER_SITES;
+            site = sites.computeIfAbsent(key, k -> new Site(format(frames)));
+        }
+        site.record(event.getDuration().toNanos());
+    }
+
+    private static String location(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun."))
+                return format(frame);
+        }
+        return frames.isEmpty() ? "unknown" : format(frames.getFirst());
+    }
+
+    private static List<String> format(List<RecordedFrame> frames) {
+        return frames.stream()
+                .limit(MAX_FRAMES)
+                .map(VirtualThreadPinningEndpoint::format)
+                .toList();
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static final class Site {
+
+        private final List<String> stackTrace;
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Site(List<String> stackTrace) {
+            this.stackTrace = stackTrace;
+        }
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private PinnedSite report(String location) {
+            return new PinnedSite(location, count.sum(), totalNanos.sum() / 1e6, maxNanos.get() / 1e6, stackTrace);
+        }
+    }
+}
\ No newline at end of file
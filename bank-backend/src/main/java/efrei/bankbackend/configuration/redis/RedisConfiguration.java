@@ -0,0 +1,48 @@
+package efrei.bankbackend.configuration.redis;
+
+import efrei.bankbackend.services.AccountCache;
+import efrei.bankbackend.services.TokenBlacklist;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Configuration class for Redis pub/sub messaging.
+ *
+ * This class registers the listeners that keep node-local state, such as the revoked-token
+ * near-cache and the account cache, in sync with events published by the other nodes.
+ */
+@Configuration
+public class RedisConfiguration {
+
+    @Value("${spring.threads.virtual.enabled}")
+    private boolean virtualThreads;
+
+    /**
+     * Bean definition for RedisMessageListenerContainer.
+     *
+     * @param connectionFactory The Redis connection factory shared with the templates.
+     * @param tokenBlacklist    The listener for token revocation events.
+     * @param accountCache      The listener for account eviction events.
+     * @return A listener container subscribed to every application channel.
+     */
+    @Bean
+    RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                TokenBlacklist tokenBlacklist,
+                                                                AccountCache accountCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("redis-listener-");
+            executor.setVirtualThreads(true);
+            container.setTaskExecutor(executor);
+        }
+        container.addMessageListener(tokenBlacklist, new ChannelTopic(TokenBlacklist.CHANNEL));
+        container.addMessageListener(accountCache, new ChannelTopic(AccountCache.CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,57 @@
+package efrei.bankbackend.configuration.security;
+
+import efrei.bankbackend.entities.RoleType;
+import efrei.bankbackend.entities.UserAccount;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Lightweight, immutable principal of an authenticated request.
+ *
+ * <p>It is built from the verified JWT claims, so authenticating a request does not require
+ * loading the {@link UserAccount} (and its password hash) from the database.</p>
+ *
+ * @param id    the user identifier
+ * @param email the user email, used as the principal name
+ * @param role  the user role
+ */
+public record AuthenticatedUser(UUID id, String email, RoleType role) implements AuthenticatedPrincipal {
+
+    private static final Map<RoleType, List<GrantedAuthority>> AUTHORITIES = new EnumMap<>(RoleType.class);
+
+    static {
+        for (RoleType roleType : RoleType.values())
+            AUTHORITIES.put(roleType, List.of(new SimpleGrantedAuthority(roleType.name())));
+    }
+
+    /**
+     * Creates a principal from a persisted user account.
+     *
+     * @param userAccount the user account
+     * @return the matching principal
+     */
+    public static AuthenticatedUser of(UserAccount userAccount) {
+        return new AuthenticatedUser(userAccount.getId(), userAccount.getEmail(), userAccount.getRole());
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    /**
+     * Returns the authorities granted by the user role, shared between all principals of that role.
+     *
+     * @return the granted authorities
+     */
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return AUTHORITIES.get(role);
+    }
+}
@@ -1,7 +1,9 @@
 package efrei.bankbackend.configuration.security.filters;
 
+import efrei.bankbackend.configuration.security.AuthenticatedUser;
 import efrei.bankbackend.exceptions.BaseException;
 import efrei.bankbackend.exceptions.TokenInvalidException;
+import efrei.bankbackend.services.JwtClaims;
 import efrei.bankbackend.services.JwtService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -11,8 +13,6 @@ import org.jspecify.annotations.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -26,31 +26,40 @@ import java.util.Optional;
  *
  * This filter intercepts incoming requests to extract and validate a JSON Web Token (JWT)
  * from the Authorization header. If the token is valid, it sets up the Spring Security
- * context with the authenticated user.
+ * context with an {@link AuthenticatedUser} built from the token claims.
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
     private final HandlerExceptionResolver handlerExceptionResolver;
 
     /**
      * Constructor for JwtAuthenticationFilter.
      *
      * @param jwtService              Service for handling JWT operations such as parsing and validation.
-     * @param userDetailsService      Service for loading user details from the database.
      * @param handlerExceptionResolver Resolver for handling exceptions during filtering.
      */
     public JwtAuthenticationFilter(
             JwtService jwtService,
-            UserDetailsService userDetailsService,
             HandlerExceptionResolver handlerExceptionResolver
     ) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
         this.handlerExceptionResolver = handlerExceptionResolver;
     }
 
+    /**
+     * Skips the credential endpoints, which must keep working when the client still sends
+     * an expired access token, typically right before refreshing it.
+     *
+     * @param request The HTTP request.
+     * @return {@code true} if the request targets a credential endpoint.
+     */
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String path = request.getServletPath();
+        return path.equals("/auth/login") || path.equals("/auth/refresh");
+    }
+
     /**
      * Performs the JWT authentication process.
      *
@@ -107,8 +116,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     /**
      * Processes the JWT for authentication.
      *
-     * This method extracts the username from the token, loads the corresponding user details,
-     * validates the token, and sets up the security context if valid.
+     * This method verifies the token once, validates the verified claims, and sets up the
+     * security context with a principal built from the claims.
      *
      * @param jwt     The JWT token.
      * @param request The HTTP request.
@@ -116,30 +125,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
      * @throws BaseException if the token is not valid.
      */
     private void processJwtAuthentication(String jwt, HttpServletRequest request) throws BaseException {
-        String userEmail = jwtService.extractUsername(jwt);
-        if (userEmail == null)
-            return;
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
-        if (!jwtService.isTokenValid(jwt, userDetails))
+        JwtClaims claims = jwtService.verify(jwt);
+        if (!jwtService.isTokenValid(claims))
             throw new TokenInvalidException();
 
-        setAuthentication(userDetails, request);
+        setAuthentication(new AuthenticatedUser(claims.userId(), claims.subject(), claims.role()), request);
     }
 
     /**
-     * Sets up the security context with the authenticated user details.
+     * Sets up the security context with the authenticated principal.
      *
      * Creates an authentication token and sets it in the Spring Security context.
      *
-     * @param userDetails The authenticated user's details.
-     * @param request     The HTTP request.
+     * @param principal The authenticated principal.
+     * @param request   The HTTP request.
      */
-    private void setAuthentication(UserDetails userDetails, HttpServletRequest request) {
+    private void setAuthentication(AuthenticatedUser principal, HttpServletRequest request) {
         UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                userDetails,
+                principal,
                 null,
-                userDetails.getAuthorities()
+                principal.getAuthorities()
         );
         authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
         SecurityContextHolder.getContext().setAuthentication(authToken);
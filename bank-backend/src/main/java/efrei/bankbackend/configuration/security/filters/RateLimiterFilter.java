@@ -1,5 +1,8 @@
 package efrei.bankbackend.configuration.security.filters;
 
+import efrei.bankbackend.configuration.security.ratelimit.RateLimitPolicy;
+import efrei.bankbackend.configuration.security.ratelimit.RateLimitPolicyRegistry;
+import efrei.bankbackend.configuration.security.ratelimit.RateLimiter;
 import efrei.bankbackend.entities.RoleType;
 import efrei.bankbackend.exceptions.TooManyRequestsException;
 import jakarta.servlet.FilterChain;
@@ -16,41 +19,22 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import java.io.IOException;
-import java.time.Instant;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class RateLimiterFilter extends OncePerRequestFilter {
 
     private final HandlerExceptionResolver handlerExceptionResolver;
 
-    private final Map<String, List<Instant>> userRequests;
-
-    private final Map<String, Map<String, Integer>> endpointRoleLimits;
-
-    private static final long WINDOW_SECONDS = 60;
+    private final RateLimitPolicyRegistry rateLimitPolicyRegistry;
 
     @Autowired
-    public RateLimiterFilter(HandlerExceptionResolver handlerExceptionResolver) {
+    public RateLimiterFilter(HandlerExceptionResolver handlerExceptionResolver, RateLimitPolicyRegistry rateLimitPolicyRegistry) {
         this.handlerExceptionResolver = handlerExceptionResolver;
-        this.userRequests = new ConcurrentHashMap<>();
-
-        this.endpointRoleLimits = new HashMap<>();
-
-        this.endpointRoleLimits.put("/auth/login", Map.of(
-                RoleType.ROLE_ANONYMOUS.name(), 5
-        ));
-
-        this.endpointRoleLimits.put("/bank/accounts/{id}/credit", Map.of(
-                RoleType.ROLE_ADMIN.name(), 15,
-                RoleType.ROLE_CLIENT.name(), 5
-        ));
-
-        this.endpointRoleLimits.put("/bank/accounts/{id}/debit", Map.of(
-                RoleType.ROLE_ADMIN.name(), 15,
-                RoleType.ROLE_CLIENT.name(), 5
-        ));
+        this.rateLimitPolicyRegistry = rateLimitPolicyRegistry;
     }
 
     @Override
@@ -58,9 +42,9 @@ public class RateLimiterFilter extends OncePerRequestFilter {
                                     @NonNull HttpServletResponse response,
                                     @NonNull FilterChain filterChain) throws ServletException, IOException {
 
-        String normalizedPath = normalizeEndpoint(request.getRequestURI());
+        RateLimitPolicy policy = rateLimitPolicyRegistry.match(request.getRequestURI());
 
-        if (!endpointRoleLimits.containsKey(normalizedPath)) {
+        if (policy == null) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -69,23 +53,23 @@ public class RateLimiterFilter extends OncePerRequestFilter {
 
         String key;
         String role;
+        boolean anonymous = authentication == null || !authentication.isAuthenticated();
 
-        if (authentication != null && authentication.isAuthenticated()) {
+        if (!anonymous) {
             key = authentication.getName();
-            role = authentication.getAuthorities().stream()
-                    .findFirst()
-                    .map(GrantedAuthority::getAuthority)
-                    .orElse(RoleType.ROLE_ANONYMOUS.name());
+            role = firstAuthority(authentication);
         } else {
             key = request.getRemoteAddr();
             role = RoleType.ROLE_ANONYMOUS.name();
         }
 
-        int maxRequests = endpointRoleLimits.get(normalizedPath)
-                .getOrDefault(role, 10);
+        RateLimiter rateLimiter = policy.limiterFor(role);
+
+        if (anonymous && rateLimiter.isUnderPressure())
+            key = subnetOf(key);
 
         try {
-            checkRateLimit(key, maxRequests);
+            checkRateLimit(rateLimiter, key);
         } catch (Exception exception) {
             handlerExceptionResolver.resolveException(request, response, null, exception);
             return;
@@ -94,22 +78,42 @@ public class RateLimiterFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    private String normalizeEndpoint(String path) {
-        return path.replaceAll("/[0-9a-fA-F\\-]{36}", "/{id}");
-    }
+    private void checkRateLimit(RateLimiter rateLimiter, String key) throws TooManyRequestsException {
+        long waitNanos = rateLimiter.tryAcquire(key);
 
-    private void checkRateLimit(String key, int maxRequests) throws TooManyRequestsException {
-        Instant now = Instant.now();
-        List<Instant> requests = userRequests.computeIfAbsent(key, k -> new ArrayList<>());
+        if (waitNanos > 0) {
+            long retryAfter = (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+            throw new TooManyRequestsException(retryAfter);
+        }
+    }
 
-        requests.removeIf(timestamp -> timestamp.isBefore(now.minusSeconds(WINDOW_SECONDS)));
+    /**
+     * Collapses a remote address into its /24 (IPv4) or /64 (IPv6) subnet, so that a flood of distinct
+     * addresses cannot exhaust the key store of a limiter.
+     */
+    private static String subnetOf(String address) {
+        if (address.indexOf(':') < 0) {
+            int lastDot = address.lastIndexOf('.');
+            return lastDot < 0 ? address : address.substring(0, lastDot) + ".0/24";
+        }
 
-        if (requests.size() >= maxRequests) {
-            Instant earliest = Collections.min(requests);
-            long retryAfter = WINDOW_SECONDS - (now.getEpochSecond() - earliest.getEpochSecond());
-            throw new TooManyRequestsException(retryAfter);
+        try {
+            byte[] bytes = InetAddress.getByName(address).getAddress();
+            if (bytes.length != 16)
+                return address;
+            Arrays.fill(bytes, 8, 16, (byte) 0);
+            return InetAddress.getByAddress(bytes).getHostAddress() + "/64";
+        } catch (UnknownHostException e) {
+            return address;
         }
+    }
+
+    private static String firstAuthority(Authentication authentication) {
+        Iterator<? extends GrantedAuthority> authorities = authentication.getAuthorities().iterator();
+        if (!authorities.hasNext())
+            return RoleType.ROLE_ANONYMOUS.name();
 
-        requests.add(now);
+        String authority = authorities.next().getAuthority();
+        return authority != null ? authority : RoleType.ROLE_ANONYMOUS.name();
     }
 }
\ No newline at end of file
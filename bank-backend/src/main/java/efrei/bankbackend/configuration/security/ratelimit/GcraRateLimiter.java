@@ -0,0 +1,57 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free GCRA rate limiter.
+ *
+ * <p>The whole state of a key is its theoretical arrival time (TAT), stored in one {@link AtomicLong}
+ * and updated by compare-and-set. A request is allowed when the TAT it would produce is at most one
+ * window ahead of now, which allows bursts of {@code limit} requests, then one request every
+ * {@code window / limit}. Once a key is known, acquiring a permit does not allocate.</p>
+ */
+final class GcraRateLimiter implements RateLimiter {
+
+    private final RateLimitKeyStore<AtomicLong> arrivals;
+
+    private final LongSupplier nanoClock;
+
+    private final long emissionInterval;
+
+    private final long windowNanos;
+
+    GcraRateLimiter(int limit, Duration window, LongSupplier nanoClock, RateLimitKeyStore<AtomicLong> arrivals) {
+        if (limit <= 0)
+            throw new IllegalArgumentException("The limit must be positive: " + limit);
+
+        this.arrivals = arrivals;
+        this.nanoClock = nanoClock;
+        this.windowNanos = window.toNanos();
+        this.emissionInterval = Math.max(1, windowNanos / limit);
+    }
+
+    @Override
+    public boolean isUnderPressure() {
+        return arrivals.isUnderPressure();
+    }
+
+    @Override
+    public long tryAcquire(String key) {
+        AtomicLong arrival = arrivals.get(key);
+
+        long now = nanoClock.getAsLong();
+        while (true) {
+            long tat = arrival.get();
+            long next = Math.max(tat, now) + emissionInterval;
+            long ahead = next - now;
+
+            if (ahead > windowNanos)
+                return ahead - windowNanos;
+
+            if (arrival.compareAndSet(tat, next))
+                return 0;
+        }
+    }
+}
\ No newline at end of file
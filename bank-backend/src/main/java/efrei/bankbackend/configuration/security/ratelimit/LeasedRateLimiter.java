@@ -0,0 +1,220 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Cluster-wide rate limiter, counting permits per fixed window in a shared {@link PermitStore}.
+ *
+ * <p>To avoid a store round trip per request, each node leases small batches of permits for a key
+ * and serves them locally. Leases left unused for a while are given back by {@link #releaseIdleLeases()},
+ * so permits are not stranded on an idle node. Since the store never grants more than the limit per
+ * window, leasing can only delay permits, never exceed the limit.</p>
+ *
+ * <p>When the store is unreachable, the limiter falls back to the local limiter, enforcing the limit
+ * per node until the store is back. After a failed call, the store is left alone for a cool-down, during which
+ * requests go straight to the fallback instead of each waiting for the store to fail again. The store is never
+ * called while holding the lease of a key, so a slow store does not queue every other request for that key
+ * behind the call.</p>
+ *
+ * <p>Leases live in a bounded {@link RateLimitKeyStore}, so a flood of distinct keys cannot grow the heap
+ * without limit, and the limiter reports being under pressure as soon as either the leases or the local
+ * fallback get close to their capacity. An evicted lease only strands its permits until the window ends.</p>
+ */
+public final class LeasedRateLimiter implements RateLimiter {
+
+    private final String policyId;
+
+    private final PermitStore permitStore;
+
+    private final RateLimiter fallback;
+
+    private final LongSupplier millisClock;
+
+    private final int limit;
+
+    private final int leaseSize;
+
+    private final long windowMillis;
+
+    private final long idleLeaseMillis;
+
+    private final long storeCoolDownMillis;
+
+    private final RateLimitKeyStore<Lease> leases;
+
+    /**
+     * Wall clock time, in milliseconds, until which the store is considered unreachable.
+     */
+    private volatile long storeDownUntil = Long.MIN_VALUE;
+
+    /**
+     * Creates a leased limiter whose leases are kept in a store of default capacity.
+     *
+     * @param policyId        identifier of the policy, prefixing every store key
+     * @param permitStore     the shared permit store
+     * @param fallback        the local limiter used when the store is unreachable
+     * @param limit           the number of requests allowed per window across the cluster
+     * @param window          the window duration
+     * @param leaseSize       the maximum number of permits leased at once
+     * @param idleLease       how long a lease may stay unused before its permits are given back
+     * @param millisClock     the wall clock, in milliseconds, shared by every node
+     */
+    public LeasedRateLimiter(String policyId, PermitStore permitStore, RateLimiter fallback, int limit, Duration window,
+                             int leaseSize, Duration idleLease, LongSupplier millisClock) {
+        this(policyId, permitStore, fallback, limit, window, leaseSize, idleLease, Duration.ofSeconds(5), millisClock,
+                100_000, 32L * 1024 * 1024, cause -> { });
+    }
+
+    /**
+     * Creates a leased limiter.
+     *
+     * @param policyId        identifier of the policy, prefixing every store key
+     * @param permitStore     the shared permit store
+     * @param fallback        the local limiter used when the store is unreachable
+     * @param limit           the number of requests allowed per window across the cluster
+     * @param window          the window duration
+     * @param leaseSize       the maximum number of permits leased at once
+     * @param idleLease       how long a lease may stay unused before its permits are given back
+     * @param storeCoolDown   how long the store is left alone after a failed call
+     * @param millisClock     the wall clock, in milliseconds, shared by every node
+     * @param maxKeys         the maximum number of leased keys
+     * @param maxBytes        the maximum approximate number of bytes used by the leases
+     * @param evictions       notified of the cause of every lease eviction
+     */
+    public LeasedRateLimiter(String policyId, PermitStore permitStore, RateLimiter fallback, int limit, Duration window,
+                             int leaseSize, Duration idleLease, Duration storeCoolDown, LongSupplier millisClock,
+                             long maxKeys, long maxBytes, Consumer<RemovalCause> evictions) {
+        this.policyId = policyId;
+        this.permitStore = permitStore;
+        this.fallback = fallback;
+        this.millisClock = millisClock;
+        this.limit = limit;
+        this.leaseSize = Math.max(1, Math.min(leaseSize, limit));
+        this.windowMillis = window.toMillis();
+        this.idleLeaseMillis = idleLease.toMillis();
+        this.storeCoolDownMillis = storeCoolDown.toMillis();
+        this.leases = new RateLimitKeyStore<>(maxKeys, maxBytes, window.plus(idleLease), Lease::new,
+                Lease.BYTES, evictions);
+    }
+
+    @Override
+    public long tryAcquire(String key) {
+        Lease lease = leases.get(key);
+
+        long now = millisClock.getAsLong();
+        long window = now / windowMillis;
+
+        lease.lock.lock();
+        try {
+            if (lease.window != window) {
+                lease.window = window;
+                lease.remaining = 0;
+            }
+            lease.lastUsed = now;
+
+            if (lease.remaining > 0) {
+                lease.remaining--;
+                return 0;
+            }
+        } finally {
+            lease.lock.unlock();
+        }
+
+        if (now < storeDownUntil)
+            return fallback.tryAcquire(key);
+
+        int granted;
+        try {
+            granted = permitStore.acquire(storeKey(key, window), leaseSize, limit, Duration.ofMillis(2 * windowMillis));
+        } catch (RuntimeException e) {
+            storeDownUntil = now + storeCoolDownMillis;
+            return fallback.tryAcquire(key);
+        }
+
+        if (granted <= 0)
+            return TimeUnit.MILLISECONDS.toNanos((window + 1) * windowMillis - now);
+
+        // Concurrent refills of the same key each add their surplus, which the store counted anyway.
+        lease.lock.lock();
+        try {
+            if (lease.window == window)
+                lease.remaining += granted - 1;
+        } finally {
+            lease.lock.unlock();
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean isUnderPressure() {
+        return leases.isUnderPressure() || fallback.isUnderPressure();
+    }
+
+    /**
+     * @return the store holding the leases of every key
+     */
+    RateLimitKeyStore<Lease> leases() {
+        return leases;
+    }
+
+    /**
+     * Gives back the permits of leases left unused for longer than the idle delay,
+     * and forgets leases of past windows.
+     */
+    public void releaseIdleLeases() {
+        long now = millisClock.getAsLong();
+        long window = now / windowMillis;
+
+        leases.forEach((key, lease) -> {
+            int unused = 0;
+            lease.lock.lock();
+            try {
+                if (lease.window != window) {
+                    leases.remove(key, lease);
+                    return;
+                }
+                if (lease.remaining > 0 && now - lease.lastUsed >= idleLeaseMillis) {
+                    unused = lease.remaining;
+                    lease.remaining = 0;
+                }
+            } finally {
+                lease.lock.unlock();
+            }
+
+            if (unused > 0 && now >= storeDownUntil) {
+                try {
+                    permitStore.release(storeKey(key, window), unused);
+                } catch (RuntimeException e) {
+                    // The permits expire with the window anyway.
+                    storeDownUntil = now + storeCoolDownMillis;
+                }
+            }
+        });
+    }
+
+    private String storeKey(String key, long window) {
+        return "ratelimit:" + policyId + ":" + key + ":" + window;
+    }
+
+    /**
+     * Per-key lease, guarded by a lock which is only held to update it, never across a store call.
+     */
+    static final class Lease {
+
+        /**
+         * Estimated footprint of a lease, including its lock.
+         */
+        private static final int BYTES = 88;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private long window = Long.MIN_VALUE;
+        private int remaining;
+        private long lastUsed;
+    }
+}
\ No newline at end of file
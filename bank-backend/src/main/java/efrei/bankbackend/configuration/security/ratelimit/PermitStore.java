@@ -0,0 +1,28 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Authoritative, cluster-wide store of consumed permits, counted per key and fixed window.
+ */
+public interface PermitStore {
+
+    /**
+     * Atomically leases up to {@code requested} permits, without letting the window count exceed the limit.
+     *
+     * @param key       the counter key, including the window
+     * @param requested the number of permits wanted
+     * @param limit     the maximum number of permits of the window
+     * @param ttl       how long the counter must be kept
+     * @return the number of permits granted, between 0 and {@code requested}
+     */
+    int acquire(String key, int requested, int limit, Duration ttl);
+
+    /**
+     * Gives back permits that were leased but not used.
+     *
+     * @param key     the counter key, including the window
+     * @param permits the number of unused permits
+     */
+    void release(String key, int permits);
+}
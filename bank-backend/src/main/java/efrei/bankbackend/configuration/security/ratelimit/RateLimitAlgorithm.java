@@ -0,0 +1,93 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiting algorithms available for an endpoint.
+ */
+public enum RateLimitAlgorithm {
+
+    /**
+     * Sliding window counter: the count of the previous window, weighted by its overlap with the
+     * sliding window, plus the count of the current window. Requests are spread like with a fixed
+     * window, without allowing twice the limit around window boundaries.
+     */
+    SLIDING_WINDOW(0) {
+        @Override
+        public RateLimiter create(int limit, Duration window, LongSupplier nanoClock, RateLimitKeyStore<AtomicLong> keyStore) {
+            return new SlidingWindowRateLimiter(limit, window, nanoClock, keyStore);
+        }
+    },
+
+    /**
+     * Generic cell rate algorithm: a token bucket of {@code limit} tokens refilled continuously
+     * over the window, tracked as a single theoretical arrival time per key.
+     */
+    GCRA(Long.MIN_VALUE) {
+        @Override
+        public RateLimiter create(int limit, Duration window, LongSupplier nanoClock, RateLimitKeyStore<AtomicLong> keyStore) {
+            return new GcraRateLimiter(limit, window, nanoClock, keyStore);
+        }
+    };
+
+    private final long initialState;
+
+    RateLimitAlgorithm(long initialState) {
+        this.initialState = initialState;
+    }
+
+    /**
+     * @return the state of a key the algorithm has never seen
+     */
+    public long initialState() {
+        return initialState;
+    }
+
+    /**
+     * Returns how long the state of an idle key must be kept. Past this delay, the state of a key is
+     * equivalent to a fresh one: a GCRA arrival time is at most one window ahead, and a sliding window
+     * only looks back at the previous window.
+     *
+     * @param window the window duration
+     * @return the idle timeout of keys
+     */
+    public Duration idleTimeout(Duration window) {
+        return window.multipliedBy(2);
+    }
+
+    /**
+     * Creates a limiter allowing {@code limit} requests per {@code window} for every key.
+     *
+     * @param limit     the number of requests allowed per window
+     * @param window    the window duration
+     * @param nanoClock the monotonic clock, in nanoseconds
+     * @param keyStore  the store holding the state of every key, created for this algorithm and window
+     * @return a new limiter
+     */
+    public abstract RateLimiter create(int limit, Duration window, LongSupplier nanoClock, RateLimitKeyStore<AtomicLong> keyStore);
+
+    /**
+     * Creates a limiter backed by a key store of default capacity.
+     *
+     * @param limit     the number of requests allowed per window
+     * @param window    the window duration
+     * @param nanoClock the monotonic clock, in nanoseconds
+     * @return a new limiter
+     */
+    public RateLimiter create(int limit, Duration window, LongSupplier nanoClock) {
+        return create(limit, window, nanoClock, RateLimitKeyStore.withDefaults(idleTimeout(window), initialState));
+    }
+
+    /**
+     * Creates a limiter using the system monotonic clock.
+     *
+     * @param limit  the number of requests allowed per window
+     * @param window the window duration
+     * @return a new limiter
+     */
+    public RateLimiter create(int limit, Duration window) {
+        return create(limit, window, System::nanoTime);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, self-evicting store of the per-key state of a rate limiter.
+ *
+ * <p>Keys are evicted once idle for longer than the idle timeout, which must be long enough for an
+ * idle key to be equivalent to a fresh one. Expiry is tracked in access order, so evicting idle keys
+ * never scans the whole store. On top of that, the store is capped both in number of keys and in
+ * approximate bytes: every key weighs its estimated footprint, and at least {@code maxBytes / maxKeys},
+ * so neither cap can be exceeded.</p>
+ *
+ * <p>Once the store reaches {@link #PRESSURE_THRESHOLD} of its capacity it reports being under pressure,
+ * so callers can switch to coarser keys before the least recently used ones get evicted.</p>
+ *
+ * @param <S> the type of the state of a key
+ */
+public final class RateLimitKeyStore<S> {
+
+    static final double PRESSURE_THRESHOLD = 0.9;
+
+    /**
+     * Estimated footprint of an AtomicLong state.
+     */
+    static final int COUNTER_BYTES = 24;
+
+    /**
+     * Estimated footprint of an entry besides its key characters and its state: the key String header
+     * and array, and the cache node.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final Cache<String, S> states;
+
+    private final Function<String, S> initializer;
+
+    private final long maxBytes;
+
+    private final int stateBytes;
+
+    private final long minEntryBytes;
+
+    /**
+     * Creates a store.
+     *
+     * @param maxKeys      the maximum number of keys
+     * @param maxBytes     the maximum approximate number of bytes
+     * @param idleTimeout  how long a key is kept after its last access
+     * @param initialState creates the state of a new key
+     * @param stateBytes   the estimated footprint of a state
+     * @param evictions    notified of the cause of every eviction
+     */
+    public RateLimitKeyStore(long maxKeys, long maxBytes, Duration idleTimeout, Supplier<S> initialState,
+                             int stateBytes, Consumer<RemovalCause> evictions) {
+        this.maxBytes = maxBytes;
+        this.stateBytes = stateBytes;
+        this.minEntryBytes = Math.max(1, maxBytes / Math.max(1, maxKeys));
+        this.initializer = key -> initialState.get();
+        this.states = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, S state) -> weigh(key))
+                .expireAfterAccess(idleTimeout)
+                .evictionListener((String key, S state, RemovalCause cause) -> evictions.accept(cause))
+                .build();
+    }
+
+    /**
+     * Creates a store of counters, holding a single number per key.
+     *
+     * @param maxKeys      the maximum number of keys
+     * @param maxBytes     the maximum approximate number of bytes
+     * @param idleTimeout  how long a key is kept after its last access
+     * @param initialState the value of the counter of a new key
+     * @param evictions    notified of the cause of every eviction
+     * @return a new store
+     */
+    public static RateLimitKeyStore<AtomicLong> counters(long maxKeys, long maxBytes, Duration idleTimeout,
+                                                         long initialState, Consumer<RemovalCause> evictions) {
+        return new RateLimitKeyStore<>(maxKeys, maxBytes, idleTimeout, () -> new AtomicLong(initialState),
+                COUNTER_BYTES, evictions);
+    }
+
+    /**
+     * Creates a store with a capacity large enough for tests and local use.
+     *
+     * @param idleTimeout  how long a key is kept after its last access
+     * @param initialState the state of a new key
+     * @return a new store
+     */
+    public static RateLimitKeyStore<AtomicLong> withDefaults(Duration idleTimeout, long initialState) {
+        return counters(100_000, 32L * 1024 * 1024, idleTimeout, initialState, cause -> { });
+    }
+
+    /**
+     * Returns the state of a key, creating it if needed.
+     *
+     * @param key the rate-limited key
+     * @return the mutable state of the key
+     */
+    public S get(String key) {
+        return states.get(key, initializer);
+    }
+
+    /**
+     * Visits every live key, without refreshing their last access.
+     *
+     * @param action called with every key and its state
+     */
+    public void forEach(BiConsumer<String, S> action) {
+        states.asMap().forEach(action);
+    }
+
+    /**
+     * Removes a key, if it is still mapped to the given state.
+     *
+     * @param key   the rate-limited key
+     * @param state the state the key must be mapped to
+     */
+    public void remove(String key, S state) {
+        states.asMap().remove(key, state);
+    }
+
+    /**
+     * Checks whether the store is close to its capacity.
+     *
+     * @return true once the store reached the pressure threshold of its capacity
+     */
+    public boolean isUnderPressure() {
+        return approximateBytes() >= PRESSURE_THRESHOLD * maxBytes;
+    }
+
+    /**
+     * @return the approximate number of live keys
+     */
+    public long size() {
+        return states.estimatedSize();
+    }
+
+    /**
+     * @return the approximate number of bytes used by the live keys
+     */
+    public long approximateBytes() {
+        return states.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+    }
+
+    private int weigh(String key) {
+        return (int) Math.max(minEntryBytes, ENTRY_OVERHEAD_BYTES + stateBytes + key.length());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rate limit policy of a route, or of every route of a budget: one limiter per role with a limit of its own,
+ * and a default limiter shared by every other role.
+ */
+public final class RateLimitPolicy {
+
+    private static final String DEFAULT_ROLE = "*";
+
+    private final RateLimitPolicyDefinition definition;
+
+    private final Map<String, RateLimiter> roleLimiters;
+
+    private final RateLimiter defaultLimiter;
+
+    private RateLimitPolicy(RateLimitPolicyDefinition definition, Map<String, RateLimiter> roleLimiters,
+                            RateLimiter defaultLimiter) {
+        this.definition = definition;
+        this.roleLimiters = roleLimiters;
+        this.defaultLimiter = defaultLimiter;
+    }
+
+    /**
+     * Creates the limiters of a policy.
+     *
+     * @param definition         the validated policy definition
+     * @param rateLimiterFactory the factory creating the limiters
+     * @return a new policy
+     */
+    static RateLimitPolicy create(RateLimitPolicyDefinition definition, RateLimiterFactory rateLimiterFactory) {
+        Map<String, RateLimiter> roleLimiters = new HashMap<>();
+        definition.limits().forEach((role, limit) -> {
+            String authority = RateLimitPolicyDefinition.authority(role);
+            roleLimiters.put(authority, rateLimiterFactory.create(definition.limitersId() + ":" + authority,
+                    definition.algorithm(), limit, definition.window()));
+        });
+
+        RateLimiter defaultLimiter = rateLimiterFactory.create(definition.limitersId() + ":" + DEFAULT_ROLE,
+                definition.algorithm(), definition.defaultLimit(), definition.window());
+        return new RateLimitPolicy(definition, Map.copyOf(roleLimiters), defaultLimiter);
+    }
+
+    /**
+     * Returns the limiter applying to a role.
+     *
+     * @param authority the authority of the caller, such as {@code ROLE_CLIENT}
+     * @return the limiter of the role, or the default limiter
+     */
+    public RateLimiter limiterFor(String authority) {
+        RateLimiter rateLimiter = roleLimiters.get(authority);
+        return rateLimiter != null ? rateLimiter : defaultLimiter;
+    }
+
+    public RateLimitPolicyDefinition getDefinition() {
+        return definition;
+    }
+
+    List<RateLimiter> limiters() {
+        List<RateLimiter> limiters = new ArrayList<>(roleLimiters.values());
+        limiters.add(defaultLimiter);
+        return limiters;
+    }
+}
@@ -0,0 +1,90 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import efrei.bankbackend.entities.RoleType;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rate limit of a route, as bound from the {@code rate-limit.policies} list.
+ *
+ * <p>Role limits are keyed by role name without its prefix, for instance {@code limits.client=5}.
+ * Roles without a limit of their own get the default limit.</p>
+ *
+ * <p>Routes naming the same {@code budget} share their limiters, so that a caller has one allowance across
+ * all of them rather than one per route, as money movements do. Their limits must then be identical.</p>
+ *
+ * @param pattern      the route pattern, such as {@code /bank/accounts/{id}/credit}
+ * @param algorithm    the algorithm enforcing the limit
+ * @param window       the window duration
+ * @param defaultLimit the number of requests allowed per window for roles without a limit
+ * @param limits       the number of requests allowed per window, by role
+ * @param budget       the name of the allowance shared with other routes, or null for a route of its own
+ */
+public record RateLimitPolicyDefinition(
+        String pattern,
+        @DefaultValue("SLIDING_WINDOW") RateLimitAlgorithm algorithm,
+        @DefaultValue("60s") Duration window,
+        @DefaultValue("10") int defaultLimit,
+        Map<String, Integer> limits,
+        String budget
+) {
+
+    public RateLimitPolicyDefinition {
+        limits = limits == null ? Map.of() : Map.copyOf(limits);
+        budget = budget == null || budget.isBlank() ? null : budget.strip();
+    }
+
+    /**
+     * Identifies the limiters of this route: routes of the same budget map to the same key when their
+     * limits agree, any other route to a key of its own.
+     *
+     * @return the key of the limiters
+     */
+    RateLimitPolicyDefinition limitersKey() {
+        return budget == null ? this : new RateLimitPolicyDefinition(null, algorithm, window, defaultLimit, limits, budget);
+    }
+
+    /**
+     * Prefix of the identifiers of the limiters of this route, also used for their distributed counters.
+     *
+     * @return the budget name, or the route pattern
+     */
+    String limitersId() {
+        return budget == null ? pattern : "budget:" + budget;
+    }
+
+    /**
+     * Checks the definition, so that a bad policy file is rejected before anything is swapped.
+     *
+     * @throws IllegalArgumentException if the definition is invalid
+     */
+    void validate() {
+        if (pattern == null || !pattern.startsWith("/"))
+            throw new IllegalArgumentException("A rate limit pattern must start with a slash: " + pattern);
+        if (window.isNegative() || window.isZero())
+            throw new IllegalArgumentException("The window of " + pattern + " must be positive");
+        if (defaultLimit <= 0)
+            throw new IllegalArgumentException("The default limit of " + pattern + " must be positive");
+
+        limits.forEach((role, limit) -> {
+            authority(role);
+            if (limit == null || limit <= 0)
+                throw new IllegalArgumentException("The limit of " + role + " on " + pattern + " must be positive");
+        });
+    }
+
+    /**
+     * Resolves a role name of the {@code limits} map to its authority.
+     *
+     * @param role a role name, with or without its prefix
+     * @return the authority, such as {@code ROLE_CLIENT}
+     * @throws IllegalArgumentException if the role is unknown
+     */
+    static String authority(String role) {
+        String name = role.toUpperCase(Locale.ROOT);
+        return RoleType.valueOf(name.startsWith("ROLE_") ? name : "ROLE_" + name).name();
+    }
+}
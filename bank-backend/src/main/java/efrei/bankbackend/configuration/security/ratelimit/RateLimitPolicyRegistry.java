@@ -0,0 +1,152 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Table of the rate limit policies, resolving request paths to the policy of their route.
+ *
+ * <p>Policies are bound from the {@code rate-limit.policies} list of the application properties. When
+ * {@code rate-limit.policy-file} points to a YAML file holding the same list, that file takes precedence
+ * and is polled for changes, so limits can be tuned without a restart. A reload builds a complete new
+ * table and swaps it atomically; policies whose definition did not change keep their limiters, and with
+ * them the state of every key. A file that fails to load or validate leaves the current table in place.</p>
+ *
+ * <p>Routes of the same budget are mapped to one shared policy, so a caller has a single allowance across them.</p>
+ */
+@Slf4j
+@Component
+public class RateLimitPolicyRegistry {
+
+    private static final String POLICIES = "rate-limit.policies";
+
+    private static final Bindable<List<RateLimitPolicyDefinition>> DEFINITIONS =
+            Bindable.listOf(RateLimitPolicyDefinition.class);
+
+    private final Environment environment;
+
+    private final RateLimiterFactory rateLimiterFactory;
+
+    private volatile RouteTrie<RateLimitPolicy> routes;
+
+    /**
+     * Policies by the key of their limiters, see {@link RateLimitPolicyDefinition#limitersKey()}.
+     */
+    private Map<RateLimitPolicyDefinition, RateLimitPolicy> policies;
+
+    private long policyFileModified;
+
+    @Value("${rate-limit.policy-file}")
+    private String policyFile;
+
+    @Autowired
+    public RateLimitPolicyRegistry(Environment environment, RateLimiterFactory rateLimiterFactory) {
+        this.environment = environment;
+        this.rateLimiterFactory = rateLimiterFactory;
+        this.routes = RouteTrie.<RateLimitPolicy>builder().build();
+        this.policies = Map.of();
+    }
+
+    @PostConstruct
+    public void init() {
+        apply(Binder.get(environment).bind(POLICIES, DEFINITIONS).orElse(List.of()));
+        reloadPolicyFile();
+    }
+
+    /**
+     * Finds the policy of the route matching a path. Does not allocate.
+     *
+     * @param path the request path
+     * @return the policy, or null if the path is not rate limited
+     */
+    public RateLimitPolicy match(String path) {
+        return routes.match(path);
+    }
+
+    /**
+     * Reloads the policy file if it changed since it was last loaded.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.policy-reload-interval}",
+            initialDelayString = "${rate-limit.policy-reload-interval}")
+    public void reloadPolicyFile() {
+        if (policyFile == null || policyFile.isBlank())
+            return;
+
+        Path path = Path.of(policyFile);
+        try {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (modified == policyFileModified)
+                return;
+
+            List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                    .load(path.toString(), new FileSystemResource(path));
+            apply(new Binder(ConfigurationPropertySources.from(sources))
+                    .bind(POLICIES, DEFINITIONS)
+                    .orElse(List.of()));
+
+            policyFileModified = modified;
+            log.info("Rate limit policies loaded from {}: policies={}.", path, policies.size());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Rate limit policies could not be loaded from {}, keeping the current ones: {}",
+                    path, e.getMessage());
+        }
+    }
+
+    private synchronized void apply(List<RateLimitPolicyDefinition> definitions) {
+        Set<String> patterns = new HashSet<>();
+        Map<String, RateLimitPolicyDefinition> budgets = new HashMap<>();
+        for (RateLimitPolicyDefinition definition : definitions) {
+            definition.validate();
+            if (!patterns.add(definition.pattern()))
+                throw new IllegalArgumentException("Duplicate rate limit pattern: " + definition.pattern());
+
+            if (definition.budget() != null) {
+                RateLimitPolicyDefinition limiters = budgets.putIfAbsent(definition.budget(), definition.limitersKey());
+                if (limiters != null && !limiters.equals(definition.limitersKey()))
+                    throw new IllegalArgumentException("The routes of budget " + definition.budget() + " must have the same limits");
+            }
+        }
+
+        Map<RateLimitPolicyDefinition, RateLimitPolicy> next = new HashMap<>();
+        RouteTrie.Builder<RateLimitPolicy> builder = RouteTrie.builder();
+        for (RateLimitPolicyDefinition definition : definitions) {
+            RateLimitPolicyDefinition key = definition.limitersKey();
+            RateLimitPolicy policy = next.get(key);
+            if (policy == null)
+                policy = policies.get(key);
+            if (policy == null)
+                policy = RateLimitPolicy.create(definition, rateLimiterFactory);
+
+            next.put(key, policy);
+            builder.add(definition.pattern(), policy);
+        }
+
+        routes = builder.build();
+
+        policies.forEach((definition, policy) -> {
+            if (!next.containsKey(definition))
+                policy.limiters().forEach(rateLimiterFactory::discard);
+        });
+        policies = next;
+    }
+}
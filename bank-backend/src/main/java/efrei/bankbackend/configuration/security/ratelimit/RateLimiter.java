@@ -0,0 +1,29 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+/**
+ * Engine enforcing a request limit per key, such as a user email or a remote address.
+ *
+ * <p>Implementations must be thread-safe and must not block: they are called on every
+ * limited request, from any number of request threads concurrently.</p>
+ */
+public interface RateLimiter {
+
+    /**
+     * Tries to consume one permit for the given key.
+     *
+     * @param key the key the limit applies to
+     * @return 0 if the permit was granted, otherwise the number of nanoseconds to wait
+     *         before a permit may be available again
+     */
+    long tryAcquire(String key);
+
+    /**
+     * Checks whether the state kept by this limiter is close to its capacity, in which case callers
+     * should use coarser keys, such as a subnet instead of a remote address.
+     *
+     * @return true if the limiter is under memory pressure
+     */
+    default boolean isUnderPressure() {
+        return false;
+    }
+}
\ No newline at end of file
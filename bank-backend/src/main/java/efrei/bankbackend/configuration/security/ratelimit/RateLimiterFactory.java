@@ -0,0 +1,144 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates the rate limiters of the application, according to the configured mode.
+ *
+ * <p>In {@code local} mode, limits are enforced per JVM by the configured algorithm. In {@code distributed}
+ * mode, limits are enforced across the cluster by {@link LeasedRateLimiter}s sharing Redis counters, each
+ * falling back to a local limiter of the configured algorithm when Redis is unreachable.</p>
+ *
+ * <p>The per-key state of every local limiter, and the leases of every distributed one, live in bounded
+ * {@link RateLimitKeyStore}s. The number of live keys, their approximate memory and the evictions are
+ * exposed as {@code ratelimit.store.*} metrics.</p>
+ */
+@Slf4j
+@Component
+public class RateLimiterFactory {
+
+    private final PermitStore permitStore;
+
+    private final List<LeasedRateLimiter> leasedRateLimiters;
+
+    private final Map<RateLimiter, List<RateLimitKeyStore<?>>> keyStores;
+
+    private final Counter expiredKeys;
+
+    private final Counter evictedKeys;
+
+    @Value("${rate-limit.mode}")
+    private String mode;
+
+    @Value("${rate-limit.distributed.lease-fraction}")
+    private double leaseFraction;
+
+    @Value("${rate-limit.distributed.idle-lease}")
+    private Duration idleLease;
+
+    @Value("${rate-limit.distributed.store-cool-down}")
+    private Duration storeCoolDown;
+
+    @Value("${rate-limit.store.max-keys}")
+    private long maxKeys;
+
+    @Value("${rate-limit.store.max-bytes}")
+    private long maxBytes;
+
+    @Autowired
+    public RateLimiterFactory(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.permitStore = new RedisPermitStore(redisTemplate);
+        this.leasedRateLimiters = new CopyOnWriteArrayList<>();
+        this.keyStores = new ConcurrentHashMap<>();
+        this.expiredKeys = evictionCounter(meterRegistry, "expired");
+        this.evictedKeys = evictionCounter(meterRegistry, "size");
+
+        Gauge.builder("ratelimit.store.keys", keyStores, stores -> stores.values().stream().flatMap(List::stream).mapToLong(RateLimitKeyStore::size).sum())
+                .description("Keys currently tracked by the local rate limiters")
+                .register(meterRegistry);
+        Gauge.builder("ratelimit.store.bytes", keyStores, stores -> stores.values().stream().flatMap(List::stream).mapToLong(RateLimitKeyStore::approximateBytes).sum())
+                .description("Approximate memory used by the keys of the local rate limiters")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates a limiter allowing {@code limit} requests per {@code window} for every key.
+     *
+     * <p>Each limiter gets its own key store, and distributed limiters their own lease store, each capped
+     * by {@code rate-limit.store.max-keys} and {@code rate-limit.store.max-bytes}.</p>
+     *
+     * @param policyId  the identifier of the policy, unique across the application
+     * @param algorithm the algorithm enforcing the limit locally
+     * @param limit     the number of requests allowed per window
+     * @param window    the window duration
+     * @return a new limiter
+     */
+    public RateLimiter create(String policyId, RateLimitAlgorithm algorithm, int limit, Duration window) {
+        RateLimitKeyStore<AtomicLong> keyStore = RateLimitKeyStore.counters(maxKeys, maxBytes,
+                algorithm.idleTimeout(window), algorithm.initialState(), this::recordEviction);
+
+        RateLimiter local = algorithm.create(limit, window, System::nanoTime, keyStore);
+        if (!"distributed".equals(mode)) {
+            keyStores.put(local, List.of(keyStore));
+            return local;
+        }
+
+        int leaseSize = (int) Math.max(1, Math.floor(limit * leaseFraction));
+        LeasedRateLimiter leased = new LeasedRateLimiter(policyId, permitStore, local, limit, window,
+                leaseSize, idleLease, storeCoolDown, System::currentTimeMillis, maxKeys, maxBytes, this::recordEviction);
+        keyStores.put(leased, List.of(keyStore, leased.leases()));
+        leasedRateLimiters.add(leased);
+        return leased;
+    }
+
+    /**
+     * Forgets a limiter that is no longer used, such as the limiter of a policy removed by a reload.
+     *
+     * @param rateLimiter a limiter created by this factory
+     */
+    public void discard(RateLimiter rateLimiter) {
+        keyStores.remove(rateLimiter);
+        if (rateLimiter instanceof LeasedRateLimiter leased)
+            leasedRateLimiters.remove(leased);
+    }
+
+    /**
+     * Gives back the permits leased from Redis but left unused, so other nodes can use them.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.distributed.idle-lease}")
+    public void releaseIdleLeases() {
+        for (LeasedRateLimiter leasedRateLimiter : leasedRateLimiters)
+            leasedRateLimiter.releaseIdleLeases();
+    }
+
+    private void recordEviction(RemovalCause cause) {
+        if (cause == RemovalCause.EXPIRED)
+            expiredKeys.increment();
+        else if (cause == RemovalCause.SIZE)
+            evictedKeys.increment();
+    }
+
+    private static Counter evictionCounter(MeterRegistry meterRegistry, String cause) {
+        return Counter.builder("ratelimit.store.evictions")
+                .description("Keys dropped by the local rate limiters, by cause")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * {@link PermitStore} keeping the counters in Redis, updated by atomic Lua scripts.
+ */
+public class RedisPermitStore implements PermitStore {
+
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>("""
+            local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local granted = math.min(tonumber(ARGV[1]), tonumber(ARGV[2]) - current)
+            if granted <= 0 then
+                return 0
+            end
+            redis.call('INCRBY', KEYS[1], granted)
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return granted
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local released = math.min(tonumber(ARGV[1]), current)
+            if released > 0 then
+                redis.call('DECRBY', KEYS[1], released)
+            end
+            return released
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisPermitStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public int acquire(String key, int requested, int limit, Duration ttl) {
+        Long granted = redisTemplate.execute(ACQUIRE, List.of(key),
+                Integer.toString(requested), Integer.toString(limit), Long.toString(ttl.toMillis()));
+        return granted == null ? 0 : granted.intValue();
+    }
+
+    @Override
+    public void release(String key, int permits) {
+        redisTemplate.execute(RELEASE, List.of(key), Integer.toString(permits));
+    }
+}
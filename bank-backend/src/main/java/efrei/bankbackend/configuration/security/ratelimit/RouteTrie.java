@@ -0,0 +1,138 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import java.util.Arrays;
+
+/**
+ * Immutable segment trie resolving request paths against a set of route patterns.
+ *
+ * <p>Patterns are made of literal segments and variable segments such as {@code {id}}, which match any
+ * non-empty segment. Literal segments take precedence over variables. Matching walks the path in place,
+ * comparing regions of it against the segments of the trie, so it never allocates, whether a route
+ * matches or not.</p>
+ *
+ * @param <T> the type of the values bound to routes
+ */
+final class RouteTrie<T> {
+
+    private final Node<T> root;
+
+    private RouteTrie(Node<T> root) {
+        this.root = root;
+    }
+
+    static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Finds the value bound to the route matching a path.
+     *
+     * @param path the request path, starting with a slash
+     * @return the value of the matching route, or null if none matches
+     */
+    T match(String path) {
+        if (path.isEmpty() || path.charAt(0) != '/')
+            return null;
+        return match(root, path, 1);
+    }
+
+    private static <T> T match(Node<T> node, String path, int start) {
+        int end = path.indexOf('/', start);
+        if (end < 0)
+            end = path.length();
+
+        Node<T> literal = node.literal(path, start, end - start);
+        if (literal != null) {
+            T value = resolve(literal, path, end);
+            if (value != null)
+                return value;
+        }
+
+        if (node.variable != null && end > start)
+            return resolve(node.variable, path, end);
+        return null;
+    }
+
+    private static <T> T resolve(Node<T> node, String path, int end) {
+        return end == path.length() ? node.value : match(node, path, end + 1);
+    }
+
+    private static final class Node<T> {
+
+        private String[] literals = new String[0];
+
+        @SuppressWarnings("unchecked")
+        private Node<T>[] children = new Node[0];
+
+        private Node<T> variable;
+
+        private T value;
+
+        private Node<T> literal(String path, int start, int length) {
+            for (int i = 0; i < literals.length; i++) {
+                String literal = literals[i];
+                if (literal.length() == length && path.regionMatches(start, literal, 0, length))
+                    return children[i];
+            }
+            return null;
+        }
+
+        private Node<T> child(String segment) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                if (variable == null)
+                    variable = new Node<>();
+                return variable;
+            }
+
+            for (int i = 0; i < literals.length; i++)
+                if (literals[i].equals(segment))
+                    return children[i];
+
+            Node<T> child = new Node<>();
+            literals = Arrays.copyOf(literals, literals.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            literals[literals.length - 1] = segment;
+            children[children.length - 1] = child;
+            return child;
+        }
+    }
+
+    /**
+     * Builds a trie. Not thread-safe; the built trie is.
+     */
+    static final class Builder<T> {
+
+        private final Node<T> root = new Node<>();
+
+        private boolean built;
+
+        /**
+         * Binds a value to a route pattern.
+         *
+         * @param pattern the route pattern, such as {@code /bank/accounts/{id}/credit}
+         * @param value   the value bound to the route
+         * @return this builder
+         * @throws IllegalArgumentException if the pattern is malformed or already bound
+         */
+        Builder<T> add(String pattern, T value) {
+            if (built)
+                throw new IllegalStateException("The trie has already been built");
+            if (pattern == null || !pattern.startsWith("/"))
+                throw new IllegalArgumentException("A route pattern must start with a slash: " + pattern);
+
+            Node<T> node = root;
+            for (String segment : pattern.substring(1).split("/", -1))
+                node = node.child(segment);
+
+            if (node.value != null)
+                throw new IllegalArgumentException("Duplicate route pattern: " + pattern);
+            node.value = value;
+            return this;
+        }
+
+        RouteTrie<T> build() {
+            built = true;
+            return new RouteTrie<>(root);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free sliding window counter rate limiter.
+ *
+ * <p>The state of a key is packed into a single {@link AtomicLong} and updated by compare-and-set:</p>
+ * <ul>
+ *     <li>bits 0-19: number of requests in the current window;</li>
+ *     <li>bits 20-39: number of requests in the previous window;</li>
+ *     <li>bits 40-63: index of the current window, modulo 2<sup>24</sup>.</li>
+ * </ul>
+ *
+ * <p>A request is allowed while {@code previous * remainingOverlap + current} stays below the limit,
+ * {@code remainingOverlap} being the fraction of the previous window still covered by the sliding window.
+ * Once a key is known, acquiring a permit does not allocate.</p>
+ */
+final class SlidingWindowRateLimiter implements RateLimiter {
+
+    static final int MAX_LIMIT = (1 << 20) - 1;
+
+    private static final int COUNT_BITS = 20;
+
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private static final long WINDOW_MASK = (1L << 24) - 1;
+
+    private final RateLimitKeyStore<AtomicLong> windows;
+
+    private final LongSupplier nanoClock;
+
+    private final long origin;
+
+    private final long limit;
+
+    private final long windowNanos;
+
+    SlidingWindowRateLimiter(int limit, Duration window, LongSupplier nanoClock, RateLimitKeyStore<AtomicLong> windows) {
+        if (limit <= 0 || limit > MAX_LIMIT)
+            throw new IllegalArgumentException("The limit must be between 1 and " + MAX_LIMIT + ": " + limit);
+
+        this.windows = windows;
+        this.nanoClock = nanoClock;
+        this.origin = nanoClock.getAsLong();
+        this.limit = limit;
+        this.windowNanos = window.toNanos();
+    }
+
+    @Override
+    public boolean isUnderPressure() {
+        return windows.isUnderPressure();
+    }
+
+    @Override
+    public long tryAcquire(String key) {
+        AtomicLong window = windows.get(key);
+
+        long elapsed = nanoClock.getAsLong() - origin;
+        long index = (elapsed / windowNanos) & WINDOW_MASK;
+        long offset = elapsed % windowNanos;
+
+        while (true) {
+            long state = window.get();
+            long stateIndex = state >>> (2 * COUNT_BITS);
+            long current = state & COUNT_MASK;
+            long previous = (state >>> COUNT_BITS) & COUNT_MASK;
+
+            long gap = (index - stateIndex) & WINDOW_MASK;
+            if (gap == 1) {
+                previous = current;
+                current = 0;
+            } else if (gap != 0) {
+                previous = 0;
+                current = 0;
+            }
+
+            if (previous * (windowNanos - offset) + current * windowNanos >= limit * windowNanos)
+                return retryAfter(previous, current, offset);
+
+            long next = (index << (2 * COUNT_BITS)) | (previous << COUNT_BITS) | (current + 1);
+            if (window.compareAndSet(state, next))
+                return 0;
+        }
+    }
+
+    /**
+     * Computes how long to wait until the weighted count drops below the limit.
+     */
+    private long retryAfter(long previous, long current, long offset) {
+        if (current < limit) {
+            long overlapAllowed = (limit - current) * windowNanos / previous;
+            return Math.max(1, windowNanos - overlapAllowed - offset + 1);
+        }
+
+        long untilNextWindow = windowNanos - offset;
+        long overlapAllowed = limit * windowNanos / current;
+        return untilNextWindow + Math.max(0, windowNanos - overlapAllowed) + 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package efrei.bankbackend.contracts;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one owner email of a bulk provisioning job.
+ */
+public record BulkAccountResult(String ownerEmail, Status status, UUID accountId) {
+
+    public enum Status {
+        CREATED,
+        ALREADY_EXISTS,
+        DUPLICATE,
+        UNKNOWN_USER,
+        INVALID_EMAIL,
+        FAILED
+    }
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package efrei.bankbackend.contracts;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Progress of a bulk provisioning job, as observed while it runs.
+ */
+public record BulkProvisioningProgress(UUID jobId, State state, long processed, long created, long skipped, long failed,
+                                       Instant startedAt, Instant finishedAt) {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        ABORTED
+    }
+}
\ No newline at end of file
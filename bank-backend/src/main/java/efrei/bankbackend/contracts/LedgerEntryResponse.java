@@ -0,0 +1,7 @@
+package efrei.bankbackend.contracts;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+public record LedgerEntryResponse(UUID id, BigDecimal amount, BigDecimal balanceAfter, String actor, Instant createdAt) { }
\ No newline at end of file
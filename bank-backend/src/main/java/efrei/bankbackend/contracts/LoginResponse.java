@@ -1,3 +1,3 @@
 package efrei.bankbackend.contracts;
 
-public record LoginResponse(String token, long expiresIn) { }
\ No newline at end of file
+public record LoginResponse(String token, long expiresIn, String refreshToken, long refreshExpiresIn) { }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package efrei.bankbackend.contracts;
+
+import java.util.List;
+
+/**
+ * Page of a keyset-paginated listing.
+ *
+ * @param items      the items of the page
+ * @param nextCursor the opaque cursor of the next page, or null on the last page
+ */
+public record PageResponse<T>(List<T> items, String nextCursor) { }
\ No newline at end of file
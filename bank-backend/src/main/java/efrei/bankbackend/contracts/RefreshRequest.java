@@ -0,0 +1,3 @@
+package efrei.bankbackend.contracts;
+
+public record RefreshRequest(String refreshToken) { }
\ No newline at end of file
@@ -0,0 +1,6 @@
+package efrei.bankbackend.contracts;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record TransferResponse(UUID sourceAccountId, UUID targetAccountId, BigDecimal amount, BigDecimal sourceBalance) { }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package efrei.bankbackend.contracts;
+
+import java.util.List;
+
+/**
+ * Outcome of a user import run. Counters only cover this run, records before {@code resumedFrom}
+ * having been handled by a previous run of the same import.
+ */
+public record UserImportResponse(String importId, long resumedFrom, long position, long imported, long skipped,
+                                 long rejected, List<String> errors) { }
\ No newline at end of file
@@ -1,21 +1,37 @@
 package efrei.bankbackend.controllers;
 
 import efrei.bankbackend.contracts.BankAccountResponse;
+import efrei.bankbackend.contracts.BulkProvisioningProgress;
+import efrei.bankbackend.contracts.LedgerEntryResponse;
+import efrei.bankbackend.contracts.PageResponse;
 import efrei.bankbackend.entities.BankAccount;
 import efrei.bankbackend.exceptions.BaseException;
+import efrei.bankbackend.services.AccountExportService;
 import efrei.bankbackend.services.BankAccountService;
+import efrei.bankbackend.services.BulkAccountProvisioningService;
+import efrei.bankbackend.services.IdempotencyService;
+import efrei.bankbackend.services.LedgerService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
-import java.util.List;
+import java.time.Duration;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @RestController
@@ -23,9 +39,28 @@ import java.util.stream.Collectors;
 public class BankAccountController {
 
     private final BankAccountService bankAccountService;
+    private final LedgerService ledgerService;
+    private final IdempotencyService idempotencyService;
+    private final AccountExportService accountExportService;
+    private final BulkAccountProvisioningService bulkAccountProvisioningService;
 
-    public BankAccountController(BankAccountService bankAccountService) {
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
+    @Value("${bank.export.timeout}")
+    private Duration exportTimeout;
+
+    @Value("${bank.bulk.timeout}")
+    private Duration bulkTimeout;
+
+    public BankAccountController(BankAccountService bankAccountService, LedgerService ledgerService,
+                                 IdempotencyService idempotencyService, AccountExportService accountExportService,
+                                 BulkAccountProvisioningService bulkAccountProvisioningService) {
         this.bankAccountService = bankAccountService;
+        this.ledgerService = ledgerService;
+        this.idempotencyService = idempotencyService;
+        this.accountExportService = accountExportService;
+        this.bulkAccountProvisioningService = bulkAccountProvisioningService;
     }
 
     @PostMapping("/create")
@@ -41,20 +76,81 @@ public class BankAccountController {
                 .body(toResponse(newBankAccount));
     }
 
+    /**
+     * Provisions an account for each owner email of the body, streaming a result per line as it goes.
+     * Like exports, the job runs as a task with a timeout of its own, {@code bank.bulk.timeout}.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public WebAsyncTask<Void> createAccounts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        InputStream ownerEmails = request.getInputStream();
+        UUID jobId = bulkAccountProvisioningService.start();
+
+        log.info("Starting bulk provisioning job '{}'.", jobId);
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType("application/x-ndjson");
+        response.setHeader(HttpHeaders.LOCATION, "/bank/accounts/bulk/" + jobId);
+
+        return new WebAsyncTask<>(bulkTimeout.toMillis(), () -> {
+            OutputStream output = response.getOutputStream();
+            bulkAccountProvisioningService.run(jobId, ownerEmails, output);
+            output.flush();
+            return null;
+        });
+    }
+
+    @GetMapping("/bulk/{jobId}")
+    public ResponseEntity<BulkProvisioningProgress> bulkProgress(@PathVariable UUID jobId) throws BaseException {
+        BulkProvisioningProgress progress = bulkAccountProvisioningService.progress(jobId);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(progress);
+    }
+
     @GetMapping("/all")
-    public ResponseEntity<List<BankAccountResponse>> all() {
-        log.info("Fetching all bank accounts");
+    public ResponseEntity<PageResponse<BankAccountResponse>> all(@RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "50") int size) throws BaseException {
+        log.info("Fetching bank accounts: size={}.", size);
 
-        List<BankAccountResponse> allAccounts = bankAccountService.all()
-                .stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        PageResponse<BankAccountResponse> page = bankAccountService.all(cursor, size);
 
-        log.info("Total accounts fetched={}", allAccounts.size());
+        log.info("Accounts fetched={}, hasMore={}.", page.items().size(), page.nextCursor() != null);
 
         return ResponseEntity
                 .status(HttpStatus.OK)
-                .body(allAccounts);
+                .body(page);
+    }
+
+    /**
+     * Streams every account. The export may take far longer than the default timeout of asynchronous
+     * requests, so it runs as a task with a timeout of its own, {@code bank.export.timeout}.
+     */
+    @GetMapping("/export")
+    public WebAsyncTask<Void> export(@RequestParam(defaultValue = "NDJSON") AccountExportService.Format format,
+                                     @RequestParam(defaultValue = "false") boolean gzip,
+                                     HttpServletResponse response) {
+        log.info("Exporting bank accounts: format={}, gzip={}.", format, gzip);
+
+        String filename = "accounts." + format.getExtension() + (gzip ? ".gz" : "");
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        if (gzip)
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            OutputStream output = response.getOutputStream();
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(output, 8192);
+                accountExportService.export(format, compressed);
+                compressed.finish();
+            } else {
+                accountExportService.export(format, output);
+            }
+            output.flush();
+            return null;
+        });
     }
 
     @GetMapping("/mine")
@@ -65,11 +161,11 @@ public class BankAccountController {
     public ResponseEntity<BankAccountResponse> mine(@NonNull Authentication authentication) throws BaseException {
         log.info("Fetching bank account for authenticated user={}.", authentication.getName());
 
-        BankAccount bankAccount = bankAccountService.byOwner(authentication.getName());
+        BankAccountResponse bankAccount = bankAccountService.byOwner(authentication.getName());
 
         return ResponseEntity
                 .status(HttpStatus.OK)
-                .body(toResponse(bankAccount));
+                .body(bankAccount);
     }
 
     @PatchMapping("/{bankAccountId}/credit")
@@ -77,16 +173,24 @@ public class BankAccountController {
         hasAuthority(T(efrei.bankbackend.entities.RoleType).ROLE_ADMIN.name()) or
         (hasAuthority(T(efrei.bankbackend.entities.RoleType).ROLE_CLIENT.name()) and @accountComponent.isOwner(authentication.name))
     """)
-    public ResponseEntity<BankAccountResponse> credit(@PathVariable UUID bankAccountId, @RequestParam BigDecimal amount) throws BaseException {
+    public ResponseEntity<BankAccountResponse> credit(@PathVariable UUID bankAccountId, @RequestParam BigDecimal amount,
+                                                      @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                      @NonNull Authentication authentication) throws BaseException {
         log.info("Crediting account '{}': amount={}", bankAccountId, amount);
 
-        BankAccount bankAccount = bankAccountService.credit(bankAccountId, amount);
+        IdempotencyService.Result result = idempotent(authentication, idempotencyKey, "credit", bankAccountId, amount,
+                () -> bankAccountService.credit(bankAccountId, amount));
+        BankAccountResponse bankAccount = result.response();
 
-        log.info("Bank account credited of {} € successfully: accountId={}, newBalance={}.", amount, bankAccount.getId(), bankAccount.getBalance());
+        if (result.replayed())
+            log.info("Replayed credit of account '{}' for idempotency key '{}'.", bankAccountId, idempotencyKey);
+        else
+            log.info("Bank account credited of {} € successfully: accountId={}, newBalance={}.", amount, bankAccount.id(), bankAccount.balance());
 
         return ResponseEntity
                 .status(HttpStatus.OK)
-                .body(toResponse(bankAccount));
+                .header(IDEMPOTENT_REPLAYED_HEADER, Boolean.toString(result.replayed()))
+                .body(bankAccount);
     }
 
     @PatchMapping("/{bankAccountId}/debit")
@@ -94,23 +198,69 @@ public class BankAccountController {
         hasAuthority(T(efrei.bankbackend.entities.RoleType).ROLE_ADMIN.name()) or
         (hasAuthority(T(efrei.bankbackend.entities.RoleType).ROLE_CLIENT.name()) and @accountComponent.isOwner(authentication.name))
     """)
-    public ResponseEntity<BankAccountResponse> debit(@PathVariable UUID bankAccountId, @RequestParam BigDecimal amount) throws BaseException {
+    public ResponseEntity<BankAccountResponse> debit(@PathVariable UUID bankAccountId, @RequestParam BigDecimal amount,
+                                                      @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                      @NonNull Authentication authentication) throws BaseException {
         log.info("Debiting account '{}': amount={}", bankAccountId, amount);
 
-        BankAccount bankAccount = bankAccountService.debit(bankAccountId, amount);
+        IdempotencyService.Result result = idempotent(authentication, idempotencyKey, "debit", bankAccountId, amount,
+                () -> bankAccountService.debit(bankAccountId, amount));
+        BankAccountResponse bankAccount = result.response();
 
-        log.info("Bank account debited of {} € successfully: accountId={}, newBalance={}.", amount, bankAccount.getId(), bankAccount.getBalance());
+        if (result.replayed())
+            log.info("Replayed debit of account '{}' for idempotency key '{}'.", bankAccountId, idempotencyKey);
+        else
+            log.info("Bank account debited of {} € successfully: accountId={}, newBalance={}.", amount, bankAccount.id(), bankAccount.balance());
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .header(IDEMPOTENT_REPLAYED_HEADER, Boolean.toString(result.replayed()))
+                .body(bankAccount);
+    }
+
+    @PatchMapping("/{bankAccountId}/shards")
+    @PreAuthorize("hasAuthority(T(efrei.bankbackend.entities.RoleType).ROLE_ADMIN.name())")
+    public ResponseEntity<BankAccountResponse> reshard(@PathVariable UUID bankAccountId, @RequestParam int count) throws BaseException {
+        log.info("Resharding account '{}': shards={}.", bankAccountId, count);
+
+        BankAccount bankAccount = bankAccountService.reshard(bankAccountId, count);
 
         return ResponseEntity
                 .status(HttpStatus.OK)
                 .body(toResponse(bankAccount));
     }
 
+    @GetMapping("/{bankAccountId}/transactions")
+    @PreAuthorize("""
+        hasAuthority(T(efrei.bankbackend.entities.RoleType).ROLE_ADMIN.name()) or
+        (hasAuthority(T(efrei.bankbackend.entities.RoleType).ROLE_CLIENT.name()) and @accountComponent.isOwner(authentication.name))
+    """)
+    public ResponseEntity<PageResponse<LedgerEntryResponse>> transactions(@PathVariable UUID bankAccountId,
+                                                                          @RequestParam(required = false) String cursor,
+                                                                          @RequestParam(defaultValue = "50") int size) throws BaseException {
+        log.info("Fetching transactions of account '{}': size={}.", bankAccountId, size);
+
+        PageResponse<LedgerEntryResponse> page = ledgerService.statement(bankAccountId, cursor, size);
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(page);
+    }
+
+    private IdempotencyService.Result idempotent(Authentication authentication, String idempotencyKey, String operationName,
+                                                 UUID bankAccountId, BigDecimal amount,
+                                                 IdempotencyService.Operation operation) throws BaseException {
+        if (idempotencyKey == null)
+            return new IdempotencyService.Result(operation.run(), false);
+
+        return idempotencyService.execute(authentication.getName(), idempotencyKey, operationName, bankAccountId, amount, operation);
+    }
+
     private BankAccountResponse toResponse(BankAccount account) {
         return new BankAccountResponse(
                 account.getId(),
-                account.getOwner().getEmail(),
-                account.getBalance()
+                account.getOwnerEmail(),
+                bankAccountService.balanceOf(account)
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package efrei.bankbackend.controllers;
+
+import efrei.bankbackend.contracts.BankAccountResponse;
+import efrei.bankbackend.contracts.TransferRequest;
+import efrei.bankbackend.contracts.TransferResponse;
+import efrei.bankbackend.exceptions.BaseException;
+import efrei.bankbackend.services.BankAccountService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/bank/transfers")
+public class TransferController {
+
+    private final BankAccountService bankAccountService;
+
+    public TransferController(BankAccountService bankAccountService) {
+        this.bankAccountService = bankAccountService;
+    }
+
+    @PostMapping
+    @PreAuthorize("""
+        hasAuthority(T(efrei.bankbackend.entities.RoleType).ROLE_ADMIN.name()) or
+        hasAuthority(T(efrei.bankbackend.entities.RoleType).ROLE_CLIENT.name())
+    """)
+    public ResponseEntity<TransferResponse> transfer(@RequestBody TransferRequest request) throws BaseException {
+        log.info("Transferring {} € from account '{}' to account '{}'.", request.amount(), request.sourceAccountId(), request.targetAccountId());
+
+        BankAccountResponse source = bankAccountService.transfer(request.sourceAccountId(), request.targetAccountId(), request.amount());
+
+        log.info("Transfer completed successfully: sourceAccountId={}, newBalance={}.", source.id(), source.balance());
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(new TransferResponse(
+                        request.sourceAccountId(),
+                        request.targetAccountId(),
+                        request.amount(),
+                        source.balance()
+                ));
+    }
+}
\ No newline at end of file
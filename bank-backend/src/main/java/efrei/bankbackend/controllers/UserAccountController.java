@@ -1,11 +1,17 @@
 package efrei.bankbackend.controllers;
 
+import efrei.bankbackend.configuration.security.AuthenticatedUser;
 import efrei.bankbackend.contracts.LoginRequest;
 import efrei.bankbackend.contracts.LoginResponse;
+import efrei.bankbackend.contracts.RefreshRequest;
 import efrei.bankbackend.contracts.UserResponse;
 import efrei.bankbackend.entities.UserAccount;
 import efrei.bankbackend.exceptions.BaseException;
+import efrei.bankbackend.exceptions.ResourceNotFoundException;
+import efrei.bankbackend.exceptions.TokenInvalidException;
 import efrei.bankbackend.services.JwtService;
+import efrei.bankbackend.services.RefreshGrant;
+import efrei.bankbackend.services.RefreshTokenService;
 import efrei.bankbackend.services.UserAccountService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,11 +26,13 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/auth")
 public class UserAccountController {
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
     private final UserAccountService userAccountService;
 
     @Autowired
-    public UserAccountController(JwtService jwtService, UserAccountService userAccountService) {
+    public UserAccountController(JwtService jwtService, RefreshTokenService refreshTokenService, UserAccountService userAccountService) {
         this.jwtService = jwtService;
+        this.refreshTokenService = refreshTokenService;
         this.userAccountService = userAccountService;
     }
 
@@ -33,9 +41,9 @@ public class UserAccountController {
         log.info("Login attempt for email={}.", loginRequest.email());
 
         UserAccount authenticatedUser = userAccountService.authenticate(loginRequest);
-        String jwtToken = jwtService.generateToken(authenticatedUser);
+        RefreshGrant refreshGrant = refreshTokenService.startFamily(authenticatedUser);
 
-        LoginResponse loginResponse = new LoginResponse(jwtToken, jwtService.getExpirationTime());
+        LoginResponse loginResponse = toLoginResponse(authenticatedUser, refreshGrant);
 
         log.info("Login successful.");
 
@@ -44,6 +52,29 @@ public class UserAccountController {
                 .body(loginResponse);
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponse> refresh(@RequestBody RefreshRequest refreshRequest) throws BaseException {
+        RefreshGrant refreshGrant = refreshTokenService.rotate(refreshRequest.refreshToken());
+
+        log.info("Token refresh for email={}.", refreshGrant.userEmail());
+
+        UserAccount user;
+        try {
+            user = userAccountService.getCachedClientByEmail(refreshGrant.userEmail());
+        } catch (ResourceNotFoundException e) {
+            refreshTokenService.revokeFamily(refreshGrant.familyId());
+            throw new TokenInvalidException();
+        }
+
+        LoginResponse loginResponse = toLoginResponse(user, refreshGrant);
+
+        log.info("Token refresh successful.");
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(loginResponse);
+    }
+
     @PostMapping("/logout")
     public ResponseEntity<Void> logout(
             @RequestHeader(value = "Authorization", required = false) String header,
@@ -57,22 +88,45 @@ public class UserAccountController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/logout-all")
+    public ResponseEntity<Void> logoutEverywhere(Authentication authentication) {
+        log.info("Logout from every device for email={}.", authentication.getName());
+
+        AuthenticatedUser principal = (AuthenticatedUser) authentication.getPrincipal();
+        jwtService.logoutEverywhere(principal.id());
+
+        log.info("Logout from every device successful.");
+
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/me")
-    public ResponseEntity<UserResponse> getAuthenticatedUser() {
+    public ResponseEntity<UserResponse> getAuthenticatedUser() throws BaseException {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        UserAccount client = (UserAccount) authentication.getPrincipal();
+        AuthenticatedUser principal = (AuthenticatedUser) authentication.getPrincipal();
 
         log.info("Fetching user information for authenticated user={}.", authentication.getName());
 
+        UserAccount client = userAccountService.getCachedClientByEmail(principal.email());
+
         UserResponse response = new UserResponse(
-                client.getId(),
+                principal.id(),
                 client.getName(),
-                client.getEmail(),
-                client.getRole().name()
+                principal.email(),
+                principal.role().name()
         );
 
         return ResponseEntity
                 .status(HttpStatus.OK)
                 .body(response);
     }
+
+    private LoginResponse toLoginResponse(UserAccount user, RefreshGrant refreshGrant) {
+        return new LoginResponse(
+                jwtService.generateToken(user, refreshGrant.familyId()),
+                jwtService.getExpirationTime(),
+                refreshGrant.refreshToken(),
+                refreshTokenService.getRefreshExpirationTime()
+        );
+    }
 }
\ No newline at end of file
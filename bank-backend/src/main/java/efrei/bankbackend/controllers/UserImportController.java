@@ -0,0 +1,53 @@
+package efrei.bankbackend.controllers;
+
+import efrei.bankbackend.contracts.UserImportResponse;
+import efrei.bankbackend.exceptions.BaseException;
+import efrei.bankbackend.services.UserImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@Slf4j
+@RestController
+@RequestMapping("/users/import")
+public class UserImportController {
+
+    private final UserImportService userImportService;
+
+    public UserImportController(UserImportService userImportService) {
+        this.userImportService = userImportService;
+    }
+
+    @PostMapping(consumes = "text/csv")
+    @PreAuthorize("hasAuthority(T(efrei.bankbackend.entities.RoleType).ROLE_ADMIN.name())")
+    public ResponseEntity<UserImportResponse> importCsv(@RequestParam(required = false) String importId,
+                                                        HttpServletRequest request) throws BaseException, IOException {
+        return importUsers(importId, UserImportService.Format.CSV, request);
+    }
+
+    @PostMapping(consumes = "application/x-ndjson")
+    @PreAuthorize("hasAuthority(T(efrei.bankbackend.entities.RoleType).ROLE_ADMIN.name())")
+    public ResponseEntity<UserImportResponse> importNdjson(@RequestParam(required = false) String importId,
+                                                           HttpServletRequest request) throws BaseException, IOException {
+        return importUsers(importId, UserImportService.Format.NDJSON, request);
+    }
+
+    private ResponseEntity<UserImportResponse> importUsers(String importId, UserImportService.Format format,
+                                                           HttpServletRequest request) throws BaseException, IOException {
+        log.info("Importing users: importId={}, format={}.", importId, format);
+
+        UserImportResponse response = userImportService.importUsers(importId, format, request.getInputStream());
+
+        log.info("Users imported: importId={}, imported={}, skipped={}, rejected={}.",
+                response.importId(), response.imported(), response.skipped(), response.rejected());
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(response);
+    }
+}
\ No newline at end of file
@@ -2,6 +2,7 @@ package efrei.bankbackend.entities;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.util.UUID;
@@ -13,15 +14,31 @@ public class BankAccount {
 
     @Id
     @Column(name = "account_id")
-    private final UUID id = UUID.randomUUID();
+    private final UUID id = UuidV7.generate();
 
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_email", referencedColumnName = "user_email")
     private UserAccount owner;
 
+    @Column(name = "owner_email", insertable = false, updatable = false)
+    private String ownerEmail;
+
     @Column(name = "balance")
     private BigDecimal balance;
 
+    @ColumnDefault("0")
+    @Column(name = "shard_count", nullable = false)
+    private int shardCount;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public boolean isSharded() {
+        return shardCount > 0;
+    }
+
     public void credit(BigDecimal amount) {
         balance = balance.add(amount);
     }
@@ -0,0 +1,32 @@
+package efrei.bankbackend.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Slice of the balance of a hot account.
+ *
+ * <p>The balance of an account with {@code N} shards is the balance of its own row plus the balances of
+ * its {@code N} shard rows. Operations touch a single shard row whenever possible, so concurrent
+ * operations on a hot account contend on {@code N} row locks instead of one.</p>
+ */
+@Entity
+@Data
+@Table(name = "bank_account_shards")
+public class BankAccountShard {
+
+    @EmbeddedId
+    private BankAccountShardId id;
+
+    @Column(name = "balance", nullable = false)
+    private BigDecimal balance;
+
+    public static BankAccountShard of(BankAccountShardId id, BigDecimal balance) {
+        BankAccountShard shard = new BankAccountShard();
+        shard.setId(id);
+        shard.setBalance(balance);
+        return shard;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+package efrei.bankbackend.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+@Embeddable
+public record BankAccountShardId(
+        @Column(name = "account_id") UUID accountId,
+        @Column(name = "slot") int slot
+) implements Serializable { }
\ No newline at end of file
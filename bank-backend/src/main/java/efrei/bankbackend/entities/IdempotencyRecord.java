@@ -0,0 +1,95 @@
+package efrei.bankbackend.entities;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Outcome of an account operation run under a client-supplied {@code Idempotency-Key}.
+ *
+ * <p>Inserted in the transaction of the balance change it describes, so a key is recorded if and only if
+ * its operation was applied. The unique constraint on the user and the key is what prevents an operation
+ * from being applied twice: a concurrent duplicate fails to insert its record and is rolled back.</p>
+ */
+@Entity
+@Data
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_keys_user_key", columnNames = {"user_email", "idempotency_key"}),
+        indexes = @Index(name = "idx_idempotency_keys_created", columnList = "created_at"))
+public class IdempotencyRecord implements Persistable<UUID> {
+
+    @Id
+    @Column(name = "record_id")
+    private final UUID id = UuidV7.generate();
+
+    @Column(name = "user_email", nullable = false, updatable = false)
+    private String userEmail;
+
+    @Column(name = "idempotency_key", nullable = false, updatable = false)
+    private String idempotencyKey;
+
+    @Column(name = "fingerprint", nullable = false, updatable = false)
+    private String fingerprint;
+
+    @Column(name = "account_id", nullable = false, updatable = false)
+    private UUID accountId;
+
+    @Column(name = "owner_email", nullable = false, updatable = false)
+    private String ownerEmail;
+
+    @Column(name = "balance", nullable = false, updatable = false)
+    private BigDecimal balance;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    /**
+     * Creates the record of an applied operation.
+     *
+     * @param userEmail      the user the key belongs to
+     * @param idempotencyKey the client-supplied key
+     * @param fingerprint    the operation, account and amount the key was used for
+     * @param accountId      the account of the response
+     * @param ownerEmail     the owner of the account of the response
+     * @param balance        the balance of the response
+     * @return a new, unsaved record
+     */
+    public static IdempotencyRecord of(String userEmail, String idempotencyKey, String fingerprint,
+                                       UUID accountId, String ownerEmail, BigDecimal balance) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setUserEmail(userEmail);
+        record.setIdempotencyKey(idempotencyKey);
+        record.setFingerprint(fingerprint);
+        record.setAccountId(accountId);
+        record.setOwnerEmail(ownerEmail);
+        record.setBalance(balance);
+        record.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MICROS));
+        return record;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package efrei.bankbackend.entities;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Append-only record of a balance change of a bank account.
+ *
+ * <p>Identifiers are time-ordered UUIDs assigned in Java rather than an identity column or a sequence,
+ * so that Hibernate can batch inserts without any round trip, nor a second connection to allocate
+ * identifiers. Since the identifier is assigned up front, the entry reports itself as new until it has
+ * been persisted, so that saving it never issues a select first.</p>
+ */
+@Entity
+@Data
+@Immutable
+@Table(name = "ledger_entries", indexes = {
+        @Index(name = "idx_ledger_entries_account_created", columnList = "account_id, created_at, entry_id")
+})
+public class LedgerEntry implements Persistable<UUID> {
+
+    @Id
+    @Column(name = "entry_id")
+    private final UUID id = UuidV7.generate();
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "account_id", nullable = false, updatable = false)
+    private BankAccount account;
+
+    @Column(name = "amount", nullable = false, updatable = false)
+    private BigDecimal amount;
+
+    @Column(name = "balance_after", nullable = false, updatable = false)
+    private BigDecimal balanceAfter;
+
+    @Column(name = "actor", nullable = false, updatable = false)
+    private String actor;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    /**
+     * Creates an entry for a balance change.
+     *
+     * @param account      the account whose balance changed
+     * @param amount       the signed amount, negative for a debit
+     * @param balanceAfter the balance resulting from the change
+     * @param actor        the email of the user who made the change
+     * @return a new, unsaved entry
+     */
+    public static LedgerEntry of(BankAccount account, BigDecimal amount, BigDecimal balanceAfter, String actor) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setAccount(account);
+        entry.setAmount(amount);
+        entry.setBalanceAfter(balanceAfter);
+        entry.setActor(actor);
+        entry.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MICROS));
+        return entry;
+    }
+}
\ No newline at end of file
@@ -17,7 +17,7 @@ import java.util.UUID;
 public class UserAccount implements UserDetails {
     @Id
     @Column(name = "user_id")
-    private final UUID id = UUID.randomUUID();
+    private final UUID id = UuidV7.generate();
 
     @Column(name = "user_name")
     private String name;
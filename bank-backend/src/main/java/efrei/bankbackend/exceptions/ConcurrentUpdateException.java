@@ -0,0 +1,21 @@
+package efrei.bankbackend.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when an operation kept conflicting with concurrent updates of the same data
+ * and ran out of retries.
+ *
+ * <p>This results in an HTTP 409 (Conflict) response; the client may safely retry the request.</p>
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConcurrentUpdateException extends BaseException {
+
+    /**
+     * Creates a new {@code ConcurrentUpdateException} with a default message.
+     */
+    public ConcurrentUpdateException() {
+        super("The operation conflicted with concurrent updates. Please try again.");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+package efrei.bankbackend.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when an {@code Idempotency-Key} is malformed, or reused for a different operation.
+ *
+ * <p>This results in an HTTP 400 (Bad Request) response with a descriptive message.</p>
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class IdempotencyKeyMismatchException extends BaseException {
+
+    /**
+     * Creates a new {@code IdempotencyKeyMismatchException} with a detailed message.
+     *
+     * @param message a human-readable explanation of the rejected key
+     */
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+package efrei.bankbackend.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a debit would bring the balance of an account below zero.
+ *
+ * <p>This results in an HTTP 400 (Bad Request) response with a descriptive message.</p>
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InsufficientFundsException extends BaseException {
+
+    /**
+     * Creates a new {@code InsufficientFundsException} with a detailed message.
+     *
+     * @param message a human-readable explanation of the rejected debit
+     */
+    public InsufficientFundsException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
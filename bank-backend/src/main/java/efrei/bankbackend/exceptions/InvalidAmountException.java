@@ -0,0 +1,22 @@
+package efrei.bankbackend.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when the amount of an operation is not strictly positive.
+ *
+ * <p>This results in an HTTP 400 (Bad Request) response with a descriptive message.</p>
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidAmountException extends BaseException {
+
+    /**
+     * Creates a new {@code InvalidAmountException} with a detailed message.
+     *
+     * @param message a human-readable explanation of the rejected amount
+     */
+    public InvalidAmountException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package efrei.bankbackend.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a pagination cursor cannot be decoded.
+ *
+ * <p>Cursors are opaque values returned by paginated endpoints; this typically means the client
+ * altered one. This results in an HTTP 400 (Bad Request) response with a descriptive message.</p>
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidCursorException extends BaseException {
+
+    /**
+     * Creates a new {@code InvalidCursorException} with a default message.
+     */
+    public InvalidCursorException() {
+        super("The pagination cursor is invalid.");
+    }
+}
\ No newline at end of file
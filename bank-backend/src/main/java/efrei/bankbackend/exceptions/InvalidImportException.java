@@ -0,0 +1,23 @@
+package efrei.bankbackend.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when an import cannot start, because of its identifier or its header.
+ *
+ * <p>Invalid records do not raise this exception: they are rejected one by one and reported with
+ * the outcome of the import. This results in an HTTP 400 (Bad Request) response with a descriptive message.</p>
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidImportException extends BaseException {
+
+    /**
+     * Creates a new {@code InvalidImportException} with a detailed message.
+     *
+     * @param message a human-readable explanation of what is wrong with the import
+     */
+    public InvalidImportException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
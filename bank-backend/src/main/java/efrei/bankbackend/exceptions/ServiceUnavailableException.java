@@ -0,0 +1,26 @@
+package efrei.bankbackend.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when the server is temporarily unable to handle a request
+ * because a bounded resource is saturated.
+ *
+ * <p>Typical examples include the password hashing executor being full during a login storm.
+ * Failing fast keeps request threads available for the rest of the traffic.</p>
+ *
+ * <p>This results in an HTTP 503 (Service Unavailable) response with a descriptive message.</p>
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceUnavailableException extends BaseException {
+
+    /**
+     * Creates a new {@code ServiceUnavailableException} with a detailed message.
+     *
+     * @param message a human-readable explanation of the saturated resource
+     */
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -2,11 +2,84 @@ package efrei.bankbackend.repositories;
 
 import efrei.bankbackend.entities.BankAccount;
 import efrei.bankbackend.entities.UserAccount;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface BankAccountRepository extends JpaRepository<BankAccount, UUID> {
     boolean existsByOwner(UserAccount owner);
-    Optional<BankAccount> findByOwnerEmail(String ownerEmail);
+    @Query("""
+        select new efrei.bankbackend.repositories.BankAccountSummary(a.id, a.ownerEmail, a.balance, a.shardCount)
+        from BankAccount a
+        order by a.id
+    """)
+    List<BankAccountSummary> findFirstSummaries(Limit limit);
+
+    /**
+     * Reads the accounts following a given id, in id order, so that any page costs the same as the first one.
+     */
+    @Query("""
+        select new efrei.bankbackend.repositories.BankAccountSummary(a.id, a.ownerEmail, a.balance, a.shardCount)
+        from BankAccount a
+        where a.id > :after
+        order by a.id
+    """)
+    List<BankAccountSummary> findSummariesAfter(@Param("after") UUID after, Limit limit);
+
+    @Query("""
+        select new efrei.bankbackend.repositories.BankAccountSummary(a.id, a.ownerEmail, a.balance, a.shardCount)
+        from BankAccount a
+        where a.ownerEmail = :ownerEmail
+    """)
+    Optional<BankAccountSummary> findSummaryByOwnerEmail(@Param("ownerEmail") String ownerEmail);
+
+    @Query("""
+        select new efrei.bankbackend.repositories.BankAccountSummary(a.id, a.ownerEmail, a.balance, a.shardCount)
+        from BankAccount a
+        where a.id = :id
+    """)
+    Optional<BankAccountSummary> findSummaryById(@Param("id") UUID id);
+
+    /**
+     * Loads an account and locks its row until the end of the transaction ({@code SELECT ... FOR UPDATE}).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from BankAccount a where a.id = :id")
+    Optional<BankAccount> findForUpdateById(@Param("id") UUID id);
+
+    @Query("select a.ownerEmail from BankAccount a where a.ownerEmail in :ownerEmails")
+    List<String> findOwnerEmailsIn(@Param("ownerEmails") Collection<String> ownerEmails);
+
+    @Query("select a.shardCount from BankAccount a where a.id = :id")
+    Optional<Integer> findShardCountById(@Param("id") UUID id);
+
+    /**
+     * Atomically adds an amount to the balance of an account, in a single statement.
+     * The version is bumped so that concurrent entity-level writers fail their optimistic check.
+     *
+     * @return the number of updated rows, 0 if the account does not exist
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BankAccount a set a.balance = a.balance + :amount, a.version = a.version + 1 where a.id = :id")
+    int credit(@Param("id") UUID id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Atomically subtracts an amount from the balance of an account, in a single statement,
+     * provided the balance covers it.
+     *
+     * @return the number of updated rows, 0 if the account does not exist or the balance is insufficient
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BankAccount a set a.balance = a.balance - :amount, a.version = a.version + 1 where a.id = :id and a.balance >= :amount")
+    int debit(@Param("id") UUID id, @Param("amount") BigDecimal amount);
 }
\ No newline at end of file
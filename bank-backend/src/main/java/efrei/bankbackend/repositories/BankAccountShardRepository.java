@@ -0,0 +1,60 @@
+package efrei.bankbackend.repositories;
+
+import efrei.bankbackend.entities.BankAccountShard;
+import efrei.bankbackend.entities.BankAccountShardId;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+public interface BankAccountShardRepository extends JpaRepository<BankAccountShard, BankAccountShardId> {
+
+    /**
+     * Atomically adds an amount to one shard.
+     *
+     * @return the number of updated rows, 0 if the shard does not exist
+     */
+    @Modifying
+    @Query("update BankAccountShard s set s.balance = s.balance + :amount where s.id.accountId = :accountId and s.id.slot = :slot")
+    int credit(@Param("accountId") UUID accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    /**
+     * Atomically subtracts an amount from one shard, provided the shard covers it.
+     *
+     * @return the number of updated rows, 0 if the shard does not exist or does not cover the amount
+     */
+    @Modifying
+    @Query("update BankAccountShard s set s.balance = s.balance - :amount where s.id.accountId = :accountId and s.id.slot = :slot and s.balance >= :amount")
+    int debit(@Param("accountId") UUID accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    /**
+     * Reads the balance of every shard of an account, in slot order, without locking them
+     * nor loading them into the persistence context.
+     */
+    @Query("select s.balance from BankAccountShard s where s.id.accountId = :accountId order by s.id.slot")
+    List<BigDecimal> findBalancesByAccountId(@Param("accountId") UUID accountId);
+
+    /**
+     * Locks every shard of an account, in slot order, and reads their current balance
+     * without loading them into the persistence context.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s.balance from BankAccountShard s where s.id.accountId = :accountId order by s.id.slot")
+    List<BigDecimal> findBalancesForUpdateByAccountId(@Param("accountId") UUID accountId);
+
+    @Query("select coalesce(sum(s.balance), 0) from BankAccountShard s where s.id.accountId = :accountId")
+    BigDecimal sumBalance(@Param("accountId") UUID accountId);
+
+    /**
+     * Loads and locks every shard of an account, in slot order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from BankAccountShard s where s.id.accountId = :accountId order by s.id.slot")
+    List<BankAccountShard> findForUpdateByAccountId(@Param("accountId") UUID accountId);
+}
\ No newline at end of file
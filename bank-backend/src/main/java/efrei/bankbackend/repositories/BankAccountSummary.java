@@ -0,0 +1,9 @@
+package efrei.bankbackend.repositories;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Columns of a bank account needed to answer listings, read without hydrating the entity or its owner.
+ */
+public record BankAccountSummary(UUID id, String ownerEmail, BigDecimal balance, int shardCount) { }
\ No newline at end of file
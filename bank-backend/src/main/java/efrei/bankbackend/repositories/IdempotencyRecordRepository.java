@@ -0,0 +1,32 @@
+package efrei.bankbackend.repositories;
+
+import efrei.bankbackend.entities.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, UUID> {
+
+    /**
+     * Finds the record of a key. It runs in a read-write transaction so that it reads from the primary,
+     * since a lagging replica could miss a record and let its operation run again.
+     */
+    @Transactional
+    Optional<IdempotencyRecord> findByUserEmailAndIdempotencyKey(String userEmail, String idempotencyKey);
+
+    /**
+     * Deletes the records created before a given instant.
+     *
+     * @return the number of deleted records
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package efrei.bankbackend.repositories;
+
+import efrei.bankbackend.entities.LedgerEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ledger entries are read newest first, by keyset on {@code (createdAt, id)}: each page starts right
+ * after the last entry of the previous one, so reading a page costs the same at any depth.
+ */
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID> {
+
+    @Query("""
+        select e from LedgerEntry e
+        where e.account.id = :accountId
+        order by e.createdAt desc, e.id desc
+    """)
+    List<LedgerEntry> findLatest(@Param("accountId") UUID accountId, Limit limit);
+
+    @Query("""
+        select e from LedgerEntry e
+        where e.account.id = :accountId
+          and (e.createdAt < :createdAt or (e.createdAt = :createdAt and e.id < :id))
+        order by e.createdAt desc, e.id desc
+    """)
+    List<LedgerEntry> findBefore(@Param("accountId") UUID accountId,
+                                 @Param("createdAt") Instant createdAt,
+                                 @Param("id") UUID id,
+                                 Limit limit);
+}
\ No newline at end of file
@@ -3,8 +3,13 @@ package efrei.bankbackend.repositories;
 import efrei.bankbackend.entities.RoleType;
 import efrei.bankbackend.entities.UserAccount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -13,4 +18,14 @@ import java.util.UUID;
 public interface UserAccountRepository extends JpaRepository<UserAccount, UUID> {
     Optional<UserAccount> findByEmail(String clientEmail);
     List<UserAccount> findAllByRoleIsLike(RoleType role);
+
+    @Query("select u.email from UserAccount u where u.email in :emails")
+    List<String> findEmailsIn(@Param("emails") Collection<String> emails);
+
+    long countByEmailEndingWith(String suffix);
+
+    @Transactional
+    @Modifying
+    @Query("update UserAccount u set u.password = :password where u.id = :id and u.password = :previousPassword")
+    int updatePassword(@Param("id") UUID id, @Param("previousPassword") String previousPassword, @Param("password") String password);
 }
\ No newline at end of file
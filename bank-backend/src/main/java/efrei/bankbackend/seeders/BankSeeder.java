@@ -12,6 +12,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * ClientSeeder is responsible for populating the database with predefined client data.
@@ -21,6 +22,10 @@ import java.math.BigDecimal;
 @Component
 public class BankSeeder implements CommandLineRunner {
 
+    private static final List<String> CLIENT_EMAILS = List.of("cedric.alonso@efrei.net", "guillaume.gomez@efrei.net");
+
+    private static final List<String> SEEDED_EMAILS = List.of("cedric.alonso@efrei.net", "guillaume.gomez@efrei.net", "admin@efrei.net");
+
     private final BankAccountRepository bankAccountRepository;
     private final UserAccountRepository userAccountRepository;
     private final PasswordEncoder passwordEncoder;
@@ -41,12 +46,16 @@ public class BankSeeder implements CommandLineRunner {
 
     /**
      * Runs the seeder logic to populate the database with initial client data.
-     * Deletes any existing client records before creating new predefined ones.
+     * Does nothing once every predefined user and account exists, which only costs two queries.
      *
      * @param args command-line arguments passed to the application
      */
     @Override
     public void run(String @NonNull ... args) {
+        if (userAccountRepository.findEmailsIn(SEEDED_EMAILS).containsAll(SEEDED_EMAILS)
+                && bankAccountRepository.findOwnerEmailsIn(CLIENT_EMAILS).containsAll(CLIENT_EMAILS))
+            return;
+
         UserAccount cedric = createClient(
                 "Cédric",
                 "cedric.alonso@efrei.net",
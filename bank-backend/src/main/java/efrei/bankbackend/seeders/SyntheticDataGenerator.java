@@ -0,0 +1,263 @@
+package efrei.bankbackend.seeders;
+
+import efrei.bankbackend.entities.RoleType;
+import efrei.bankbackend.entities.UuidV7;
+import efrei.bankbackend.repositories.UserAccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NonNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SyntheticDataGenerator populates the database with a large, production-like population of clients
+ * and bank accounts, for performance testing. It only runs with the {@value #PROFILE} profile, either
+ * along with the application or as a one-off command (see {@link efrei.bankbackend.BankBackendApplication}).
+ *
+ * <p>The data is deterministic: every user is derived from the seed and its index alone, identifiers
+ * included, whatever the number of threads. Users are inserted in blocks by several threads, each block
+ * being one JDBC batch of users followed by one batch of accounts. Every user shares the same password,
+ * hashed once up front. Balances follow a log-normal distribution, with a share of empty accounts.</p>
+ *
+ * <p>Inserts ignore rows that already exist, so an interrupted run can simply be started again with the
+ * same settings. Blocks complete in any order, so a completion marker is stored in Redis once every block
+ * succeeded, under a key derived from the settings. While that marker exists and the database still holds
+ * as many synthetic users as requested, the generator does nothing.</p>
+ */
+@Slf4j
+@Component
+@Profile(SyntheticDataGenerator.PROFILE)
+public class SyntheticDataGenerator implements CommandLineRunner {
+
+    public static final String PROFILE = "synthetic";
+
+    private static final String MARKER_PREFIX = "synthetic-data:";
+
+    private static final String INSERT_USER = """
+            insert ignore into user_accounts (user_id, user_name, user_email, user_password, user_roles)
+            values (?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_ACCOUNT = """
+            insert ignore into bank_accounts (account_id, owner_email, balance, shard_count, version)
+            values (?, ?, ?, 0, 0)
+            """;
+
+    private static final String[] FIRST_NAMES = {
+            "Alice", "Amine", "Camille", "Chloé", "Clément", "Emma", "Hugo", "Inès", "Jules", "Léa",
+            "Lina", "Louis", "Lucas", "Manon", "Nathan", "Noah", "Sarah", "Théo", "Yanis", "Zoé"
+    };
+
+    private static final String[] LAST_NAMES = {
+            "Bernard", "Bonnet", "Dubois", "Durand", "Fournier", "Garcia", "Girard", "Lambert", "Laurent", "Lefebvre",
+            "Leroy", "Martin", "Mercier", "Michel", "Moreau", "Morel", "Petit", "Richard", "Robert", "Roux"
+    };
+
+    /**
+     * Timestamp of the first generated identifier, 2024-01-01T00:00:00Z, each user adding one millisecond.
+     */
+    private static final long BASE_EPOCH_MILLIS = 1_704_067_200_000L;
+
+    private static final double EMPTY_ACCOUNT_SHARE = 0.05;
+
+    private static final double MEDIAN_BALANCE = 1_500;
+
+    private static final double BALANCE_SIGMA = 1.3;
+
+    private static final double MAX_BALANCE = 5_000_000;
+
+    private final UserAccountRepository userAccountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${bank.synthetic.users}")
+    private long users;
+
+    @Value("${bank.synthetic.account-ratio}")
+    private double accountRatio;
+
+    @Value("${bank.synthetic.seed}")
+    private long seed;
+
+    @Value("${bank.synthetic.threads}")
+    private int threads;
+
+    @Value("${bank.synthetic.batch-size}")
+    private int batchSize;
+
+    @Value("${bank.synthetic.password}")
+    private String password;
+
+    @Value("${bank.synthetic.email-domain}")
+    private String emailDomain;
+
+    /**
+     * Constructs a new SyntheticDataGenerator.
+     *
+     * @param userAccountRepository the repository used to check whether the data already exists
+     * @param jdbcTemplate          the template used for batch inserts
+     * @param passwordEncoder       the encoder used to hash the shared password, once
+     * @param redisTemplate         the template used to store the completion marker
+     */
+    @Autowired
+    public SyntheticDataGenerator(UserAccountRepository userAccountRepository, JdbcTemplate jdbcTemplate,
+                                  PasswordEncoder passwordEncoder, StringRedisTemplate redisTemplate) {
+        this.userAccountRepository = userAccountRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Generates the users and accounts, unless a previous run with the same settings completed.
+     *
+     * @param args command-line arguments passed to the application
+     */
+    @Override
+    public void run(String @NonNull ... args) throws InterruptedException, ExecutionException {
+        if (users <= 0)
+            return;
+
+        if (isGenerated()) {
+            log.info("Synthetic data already generated: users={}, seed={}.", users, seed);
+            return;
+        }
+
+        log.info("Generating synthetic data: users={}, accountRatio={}, seed={}, threads={}, batchSize={}.",
+                users, accountRatio, seed, threads, batchSize);
+
+        String passwordHash = passwordEncoder.encode(password);
+        AtomicLong generated = new AtomicLong();
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, Thread.ofPlatform()
+                .name("synthetic-data-", 0)
+                .factory());
+        try {
+            List<Future<?>> blocks = new ArrayList<>();
+            for (long from = 0; from < users; from += batchSize) {
+                long blockStart = from;
+                long blockEnd = Math.min(from + batchSize, users);
+                blocks.add(executor.submit(() -> {
+                    insertBlock(blockStart, blockEnd, passwordHash);
+                    logProgress(generated.addAndGet(blockEnd - blockStart), blockEnd - blockStart);
+                }));
+            }
+
+            for (Future<?> block : blocks)
+                block.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        markGenerated();
+
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Synthetic data generated: users={}, durationMs={}, usersPerSecond={}.",
+                users, elapsedMillis, users * 1000 / elapsedMillis);
+    }
+
+    /**
+     * Whether a previous run with the same settings stored its completion marker, and its users are still
+     * there. Without Redis, the data is generated again, which only costs the time of the ignored inserts.
+     */
+    private boolean isGenerated() {
+        String marker;
+        try {
+            marker = redisTemplate.opsForValue().get(markerKey());
+        } catch (RuntimeException e) {
+            log.warn("Could not read the synthetic data marker, generating again: {}", e.getMessage());
+            return false;
+        }
+        return marker != null && userAccountRepository.countByEmailEndingWith("@" + emailDomain) >= users;
+    }
+
+    private void markGenerated() {
+        try {
+            redisTemplate.opsForValue().set(markerKey(), Long.toString(users));
+        } catch (RuntimeException e) {
+            log.warn("Could not store the synthetic data marker, the next run will generate again: {}", e.getMessage());
+        }
+    }
+
+    private String markerKey() {
+        return MARKER_PREFIX + emailDomain + ":" + users + ":" + accountRatio + ":" + seed;
+    }
+
+    /**
+     * Inserts the users of a range of indexes, and their accounts.
+     */
+    private void insertBlock(long from, long to, String passwordHash) {
+        List<Object[]> userRows = new ArrayList<>((int) (to - from));
+        List<Object[]> accountRows = new ArrayList<>((int) (to - from));
+
+        for (long index = from; index < to; index++) {
+            SplittableRandom random = new SplittableRandom(mix(seed ^ mix(index)));
+            String email = email(index);
+            String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+
+            userRows.add(new Object[]{id(index, random), name, email, passwordHash, RoleType.ROLE_CLIENT.name()});
+            if (random.nextDouble() < accountRatio)
+                accountRows.add(new Object[]{id(index, random), email, balance(random)});
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_USER, userRows);
+        if (!accountRows.isEmpty())
+            jdbcTemplate.batchUpdate(INSERT_ACCOUNT, accountRows);
+    }
+
+    private void logProgress(long generated, long block) {
+        long step = Math.max(users / 20, 1);
+        if (generated / step != (generated - block) / step || generated == users)
+            log.info("Synthetic data progress: {}/{} users.", generated, users);
+    }
+
+    private String email(long index) {
+        return "user" + index + "@" + emailDomain;
+    }
+
+    /**
+     * Builds a version 7 UUID whose timestamp is derived from the index, and random bits from the generator.
+     */
+    private static byte[] id(long index, SplittableRandom random) {
+        long mostSignificantBits = (BASE_EPOCH_MILLIS + index) << 16 | 0x7000L | random.nextInt(1 << 12);
+        long leastSignificantBits = random.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return UuidV7.toBytes(new UUID(mostSignificantBits, leastSignificantBits));
+    }
+
+    private static BigDecimal balance(SplittableRandom random) {
+        if (random.nextDouble() < EMPTY_ACCOUNT_SHARE)
+            return BigDecimal.ZERO;
+
+        double amount = MEDIAN_BALANCE * Math.exp(BALANCE_SIGMA * random.nextGaussian());
+        return BigDecimal.valueOf(Math.min(amount, MAX_BALANCE)).setScale(2, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * SplitMix64 finalizer, spreading consecutive values over the whole range.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
\ No newline at end of file
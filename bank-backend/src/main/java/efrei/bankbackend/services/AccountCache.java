@@ -0,0 +1,247 @@
+package efrei.bankbackend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import efrei.bankbackend.contracts.BankAccountResponse;
+import efrei.bankbackend.repositories.BankAccountRepository;
+import efrei.bankbackend.repositories.BankAccountSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Two-tier read-through cache of bank accounts, by id and by owner email, for read-only lookups.
+ *
+ * <p>A small node-local tier with a short TTL sits in front of a shared Redis tier, itself in front of the
+ * database. Only committed data is ever cached: lookups suspend the transaction of their caller, so misses
+ * are loaded outside of any transaction, from the primary rather than a possibly lagging replica, and writes
+ * evict the account through {@link #evictAfterCommit(UUID)}, which only runs once the transaction committed.
+ * An eviction removes the Redis entry and is broadcast to every node, which drop their local entry. Misses
+ * sum the shards of sharded accounts afresh, since the aggregate cached by {@link HotAccountService} is
+ * local to the node which wrote it and left alone by evictions.</p>
+ *
+ * <p>Staleness is bounded by the local TTL when an eviction message is missed, and by the Redis TTL in
+ * the rare case where a read that started before a commit populates Redis after its eviction. Lookups
+ * fall back to the database whenever Redis is unavailable. The owner of an account never changes, so the
+ * owner to id mapping is only ever dropped by expiration.</p>
+ */
+@Slf4j
+@Service
+public class AccountCache implements MessageListener {
+
+    public static final String CHANNEL = "bank:accounts:events";
+
+    private static final String ACCOUNT_PREFIX = "account:";
+
+    private static final String OWNER_PREFIX = "account:owner:";
+
+    private final BankAccountRepository bankAccountRepository;
+    private final HotAccountService hotAccountService;
+    private final StringRedisTemplate redisTemplate;
+
+    private final Cache<UUID, BankAccountResponse> accounts;
+    private final Cache<String, UUID> owners;
+    private final Duration ttl;
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    @Autowired
+    public AccountCache(BankAccountRepository bankAccountRepository, HotAccountService hotAccountService,
+                        StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                        @Value("${bank.account-cache.local-size}") long localSize,
+                        @Value("${bank.account-cache.local-ttl}") Duration localTtl,
+                        @Value("${bank.account-cache.ttl}") Duration ttl) {
+        this(bankAccountRepository, hotAccountService, redisTemplate, meterRegistry, localSize, localTtl, ttl, Ticker.systemTicker());
+    }
+
+    AccountCache(BankAccountRepository bankAccountRepository, HotAccountService hotAccountService,
+                 StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                 long localSize, Duration localTtl, Duration ttl, Ticker ticker) {
+        this.bankAccountRepository = bankAccountRepository;
+        this.hotAccountService = hotAccountService;
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(localSize)
+                .expireAfterWrite(localTtl)
+                .ticker(ticker)
+                .build();
+        this.owners = Caffeine.newBuilder()
+                .maximumSize(localSize)
+                .ticker(ticker)
+                .build();
+        this.localHits = lookupCounter(meterRegistry, "local_hit");
+        this.redisHits = lookupCounter(meterRegistry, "redis_hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+    }
+
+    /**
+     * Retrieves an account by id, loading it on a miss.
+     *
+     * @param accountId the account identifier
+     * @return the account, or empty if it does not exist
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<BankAccountResponse> findById(UUID accountId) {
+        BankAccountResponse account = accounts.getIfPresent(accountId);
+        if (account != null) {
+            localHits.increment();
+            return Optional.of(account);
+        }
+
+        account = fromRedis(accountId);
+        if (account != null) {
+            redisHits.increment();
+            accounts.put(accountId, account);
+            return Optional.of(account);
+        }
+
+        misses.increment();
+        return bankAccountRepository.findSummaryById(accountId).map(this::load);
+    }
+
+    /**
+     * Retrieves the account of a user, loading it on a miss.
+     *
+     * @param ownerEmail the owner email
+     * @return the account, or empty if the user has none
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<BankAccountResponse> findByOwnerEmail(String ownerEmail) {
+        UUID accountId = owners.getIfPresent(ownerEmail);
+        if (accountId == null)
+            accountId = ownerFromRedis(ownerEmail);
+
+        if (accountId != null)
+            return findById(accountId);
+
+        misses.increment();
+        return bankAccountRepository.findSummaryByOwnerEmail(ownerEmail).map(this::load);
+    }
+
+    /**
+     * Evicts an account once the current transaction committed, or right away outside of a transaction.
+     * Nothing is evicted if the transaction rolls back, since the cached state is still the committed one.
+     *
+     * @param accountId the account identifier
+     */
+    public void evictAfterCommit(UUID accountId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(accountId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(accountId);
+            }
+        });
+    }
+
+    /**
+     * Evicts an account from both tiers, and broadcasts the eviction to every node.
+     *
+     * @param accountId the account identifier
+     */
+    public void evict(UUID accountId) {
+        accounts.invalidate(accountId);
+        try {
+            redisTemplate.delete(ACCOUNT_PREFIX + accountId);
+            redisTemplate.convertAndSend(CHANNEL, accountId.toString());
+        } catch (RuntimeException e) {
+            log.warn("Could not evict account '{}' from Redis, other nodes keep it until it expires: {}", accountId, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops an account evicted by any node from the local tier.
+     *
+     * @param message the pub/sub message carrying the account identifier
+     * @param pattern the matched pattern, unused
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            accounts.invalidate(UUID.fromString(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed account eviction message on channel {}.", CHANNEL);
+        }
+    }
+
+    private BankAccountResponse load(BankAccountSummary summary) {
+        BankAccountResponse account = new BankAccountResponse(
+                summary.id(),
+                summary.ownerEmail(),
+                hotAccountService.freshBalanceOf(summary.id(), summary.balance(), summary.shardCount())
+        );
+
+        accounts.put(account.id(), account);
+        owners.put(account.ownerEmail(), account.id());
+        try {
+            redisTemplate.opsForValue().set(ACCOUNT_PREFIX + account.id(), account.balance().toPlainString() + "\n" + account.ownerEmail(), ttl);
+            redisTemplate.opsForValue().set(OWNER_PREFIX + account.ownerEmail(), account.id().toString(), ttl);
+        } catch (RuntimeException e) {
+            log.debug("Could not cache account '{}' in Redis: {}", account.id(), e.getMessage());
+        }
+        return account;
+    }
+
+    private BankAccountResponse fromRedis(UUID accountId) {
+        String value;
+        try {
+            value = redisTemplate.opsForValue().get(ACCOUNT_PREFIX + accountId);
+        } catch (RuntimeException e) {
+            log.debug("Could not read account '{}' from Redis: {}", accountId, e.getMessage());
+            return null;
+        }
+        if (value == null)
+            return null;
+
+        int separator = value.indexOf('\n');
+        if (separator < 0)
+            return null;
+        return new BankAccountResponse(accountId, value.substring(separator + 1), new BigDecimal(value.substring(0, separator)));
+    }
+
+    private UUID ownerFromRedis(String ownerEmail) {
+        try {
+            String value = redisTemplate.opsForValue().get(OWNER_PREFIX + ownerEmail);
+            if (value == null)
+                return null;
+
+            UUID accountId = UUID.fromString(value);
+            owners.put(ownerEmail, accountId);
+            return accountId;
+        } catch (RuntimeException e) {
+            log.debug("Could not read the account of '{}' from Redis: {}", ownerEmail, e.getMessage());
+            return null;
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("bank.account-cache.lookups")
+                .description("Account cache lookups by tier that served them")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
\ No newline at end of file
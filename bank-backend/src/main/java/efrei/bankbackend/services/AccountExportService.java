@@ -0,0 +1,242 @@
+package efrei.bankbackend.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.text.StringEscapeUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.core.exc.JacksonIOException;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams every bank account for reporting, in constant memory whatever the size of the table.
+ *
+ * <p>Rows are read through a forward-only, read-only statement with a fetch size of
+ * {@link Integer#MIN_VALUE}, which makes MySQL Connector/J stream the result set row by row instead of
+ * buffering it, and each row is written to the response as soon as it is read. If the client goes away,
+ * the query is cancelled before the result set is closed, so the driver does not have to drain the
+ * remaining rows.</p>
+ *
+ * <p>NDJSON rows are written by a streaming Jackson generator straight to the output, one object per line.</p>
+ */
+@Slf4j
+@Service
+public class AccountExportService {
+
+    private static final String QUERY = """
+            select a.account_id, a.owner_email, a.balance + coalesce(s.balance, 0) as balance
+            from bank_accounts a
+            left join (
+                select account_id, sum(balance) as balance
+                from bank_account_shards
+                group by account_id
+            ) s on s.account_id = a.account_id
+            """;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Export formats.
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectWriter ndjsonWriter;
+    private final Counter exportedRows;
+
+    @Autowired
+    public AccountExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ndjsonWriter = objectMapper.writer()
+                .withRootValueSeparator("")
+                .without(StreamWriteFeature.AUTO_CLOSE_TARGET);
+        this.exportedRows = Counter.builder("bank.export.rows")
+                .description("Accounts written by exports")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes every account to a stream.
+     *
+     * @param format the output format
+     * @param output the stream, left open
+     * @throws IOException if the client went away, in which case the export is aborted
+     */
+    @Transactional(readOnly = true)
+    public void export(Format format, OutputStream output) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(output, BUFFER_SIZE);
+        long start = System.nanoTime();
+        long[] rows = {0};
+        boolean completed = false;
+
+        try (RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(buffered) : new NdjsonRowWriter(ndjsonWriter.createGenerator(buffered))) {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    statement.setFetchSize(Integer.MIN_VALUE);
+
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        try {
+                            while (resultSet.next()) {
+                                rowWriter.write(toUuid(resultSet.getBytes(1)), resultSet.getString(2), resultSet.getBigDecimal(3));
+                                rows[0]++;
+                            }
+                        } catch (IOException e) {
+                            statement.cancel();
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+                return null;
+            });
+
+            rowWriter.flush();
+            completed = true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            exportedRows.increment(rows[0]);
+
+            long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            log.info("Account export {}: format={}, rows={}, durationMs={}, rowsPerSecond={}.",
+                    completed ? "completed" : "aborted", format, rows[0], elapsedMillis, rows[0] * 1000 / elapsedMillis);
+        }
+    }
+
+    /**
+     * Writes the rows of an export in one format, leaving the underlying stream open.
+     */
+    private interface RowWriter extends AutoCloseable {
+
+        void write(UUID accountId, String ownerEmail, BigDecimal balance) throws IOException;
+
+        void flush() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private CsvRowWriter(OutputStream output) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writer.write("account_id,owner_email,balance\n");
+        }
+
+        @Override
+        public void write(UUID accountId, String ownerEmail, BigDecimal balance) throws IOException {
+            writer.write(accountId.toString());
+            writer.write(',');
+            writer.write(ownerEmail == null ? "" : StringEscapeUtils.escapeCsv(ownerEmail));
+            writer.write(',');
+            writer.write(balance.toPlainString());
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() {
+            // Closing the writer would close the response stream, which belongs to the caller.
+        }
+    }
+
+    /**
+     * Writes rows through a Jackson generator, which reports I/O failures as unchecked
+     * {@link JacksonIOException}s; they are unwrapped so that aborted exports are told apart as before.
+     */
+    private static final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void write(UUID accountId, String ownerEmail, BigDecimal balance) throws IOException {
+            try {
+                generator.writeStartObject();
+                generator.writeStringProperty("id", accountId.toString());
+                generator.writeStringProperty("ownerEmail", ownerEmail);
+                generator.writeName("balance");
+                generator.writeNumber(balance.toPlainString());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (JacksonIOException e) {
+                throw (IOException) e.getCause();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                generator.flush();
+            } catch (JacksonIOException e) {
+                throw (IOException) e.getCause();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                generator.close();
+            } catch (JacksonIOException e) {
+                throw (IOException) e.getCause();
+            }
+        }
+    }
+
+    private static UUID toUuid(byte[] bytes) {
+        if (bytes.length == 16) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+        return UUID.fromString(new String(bytes, StandardCharsets.US_ASCII));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,278 @@
+package efrei.bankbackend.services;
+
+import efrei.bankbackend.configuration.datasource.ReplicaRoutingDataSource;
+import efrei.bankbackend.contracts.BankAccountResponse;
+import efrei.bankbackend.entities.BankAccount;
+import efrei.bankbackend.exceptions.BaseException;
+import efrei.bankbackend.exceptions.InsufficientFundsException;
+import efrei.bankbackend.exceptions.ResourceNotFoundException;
+import efrei.bankbackend.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional group-commit pipeline for credits and debits.
+ *
+ * <p>Operations are routed to a fixed set of single-writer lanes, by account id. Each lane takes the
+ * operations queued within a short window and applies them in one transaction: every account of the
+ * batch is locked once, in ascending id order and with its shards before its row, the operations are applied in arrival order on its balance,
+ * each with its own ledger entry, and the whole batch is committed at once. Each caller then gets its own
+ * resulting balance, or its own failure, such as insufficient funds, without affecting the rest of the batch.</p>
+ *
+ * <p>Enabled with {@code bank.write-pipeline.enabled}; otherwise every operation runs its own transaction.</p>
+ */
+@Slf4j
+@Component
+public class AccountWritePipeline {
+
+    private final TransactionRunner transactionRunner;
+    private final LedgerService ledgerService;
+    private final HotAccountService hotAccountService;
+    private final AccountCache accountCache;
+    private final ReplicaRoutingDataSource replicaRoutingDataSource;
+    private final DistributionSummary batchSizes;
+
+    @Value("${bank.write-pipeline.enabled}")
+    private boolean enabled;
+
+    @Value("${bank.write-pipeline.lanes}")
+    private int laneCount;
+
+    @Value("${bank.write-pipeline.window}")
+    private Duration window;
+
+    @Value("${bank.write-pipeline.max-batch}")
+    private int maxBatch;
+
+    @Value("${bank.write-pipeline.queue-capacity}")
+    private int queueCapacity;
+
+    private Lane[] lanes;
+
+    @Autowired
+    public AccountWritePipeline(TransactionRunner transactionRunner, LedgerService ledgerService,
+                                HotAccountService hotAccountService, AccountCache accountCache,
+                                ReplicaRoutingDataSource replicaRoutingDataSource, MeterRegistry meterRegistry) {
+        this.transactionRunner = transactionRunner;
+        this.ledgerService = ledgerService;
+        this.hotAccountService = hotAccountService;
+        this.accountCache = accountCache;
+        this.replicaRoutingDataSource = replicaRoutingDataSource;
+        this.batchSizes = DistributionSummary.builder("bank.write-pipeline.batch.size")
+                .description("Operations committed per group-commit transaction")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled)
+            return;
+
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(new ArrayBlockingQueue<>(queueCapacity));
+            Thread.ofPlatform()
+                    .name("account-write-lane-" + i)
+                    .start(lanes[i]);
+        }
+        log.info("Account write pipeline started: lanes={}, window={}, maxBatch={}.", laneCount, window, maxBatch);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (lanes == null)
+            return;
+
+        for (Lane lane : lanes)
+            lane.stop();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Submits an operation and waits for the commit of its batch. Since the batch commits on a lane thread,
+     * the actor is remembered as a recent writer from here, so that their next reads go to the primary.
+     *
+     * @param accountId    the account identifier
+     * @param signedAmount the amount, negative for a debit
+     * @param actor        the email of the user making the operation
+     * @return the account with its balance right after this operation
+     * @throws BaseException the failure of this operation, or {@link ServiceUnavailableException} if the lane is full
+     */
+    public BankAccountResponse execute(UUID accountId, BigDecimal signedAmount, String actor) throws BaseException {
+        Operation operation = new Operation(accountId, signedAmount, actor, new CompletableFuture<>());
+
+        Lane lane = lanes[Math.floorMod(accountId.hashCode(), lanes.length)];
+        if (!lane.queue.offer(operation))
+            throw new ServiceUnavailableException("Too many pending operations. Please try again later.");
+
+        try {
+            BankAccountResponse response = operation.result().get();
+            replicaRoutingDataSource.rememberWriter(actor);
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("The operation was interrupted before its outcome was known.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BaseException baseException)
+                throw baseException;
+            throw new IllegalStateException("The operation failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Applies a batch in one transaction. Outcomes are only published once the transaction committed,
+     * and are recomputed from scratch if the transaction is retried.
+     */
+    private void apply(List<Operation> batch) {
+        Map<UUID, List<Operation>> byAccount = new TreeMap<>();
+        for (Operation operation : batch)
+            byAccount.computeIfAbsent(operation.accountId(), id -> new ArrayList<>()).add(operation);
+
+        Map<Operation, Object> outcomes;
+        try {
+            outcomes = transactionRunner.execute(() -> {
+                Map<Operation, Object> results = new IdentityHashMap<>();
+                for (Map.Entry<UUID, List<Operation>> entry : byAccount.entrySet())
+                    applyToAccount(entry.getKey(), entry.getValue(), results);
+                return results;
+            });
+        } catch (BaseException | RuntimeException e) {
+            log.warn("Group commit of {} operations failed: {}", batch.size(), e.getMessage());
+            batch.forEach(operation -> operation.result().completeExceptionally(e));
+            return;
+        }
+
+        batchSizes.record(batch.size());
+        outcomes.forEach((operation, outcome) -> {
+            if (outcome instanceof BankAccountResponse response)
+                operation.result().complete(response);
+            else
+                operation.result().completeExceptionally((Throwable) outcome);
+        });
+    }
+
+    private void applyToAccount(UUID accountId, List<Operation> operations, Map<Operation, Object> results) {
+        Optional<BankAccount> locked = hotAccountService.lock(accountId);
+        if (locked.isEmpty()) {
+            ResourceNotFoundException notFound = new ResourceNotFoundException("No account found for id '" + accountId + "'.");
+            operations.forEach(operation -> results.put(operation, notFound));
+            return;
+        }
+
+        BankAccount account = locked.get();
+        String ownerEmail = account.getOwnerEmail();
+        accountCache.evictAfterCommit(accountId);
+
+        for (Operation operation : operations) {
+            BigDecimal amount = operation.signedAmount();
+
+            if (amount.signum() < 0 && !withdraw(account, amount.negate())) {
+                results.put(operation, new InsufficientFundsException(
+                        "Insufficient funds on account '" + accountId + "' to debit " + amount.negate() + " €."));
+                continue;
+            }
+            if (amount.signum() > 0)
+                account.credit(amount);
+
+            BigDecimal balance = hotAccountService.currentBalanceOf(account);
+            ledgerService.record(account, amount, balance, operation.actor());
+            results.put(operation, new BankAccountResponse(accountId, ownerEmail, balance));
+        }
+    }
+
+    /**
+     * Takes an amount from the locked account row, or from its shards if the account became sharded.
+     */
+    private boolean withdraw(BankAccount account, BigDecimal amount) {
+        if (account.isSharded() && hotAccountService.debit(account.getId(), amount))
+            return true;
+        if (account.getBalance().compareTo(amount) < 0)
+            return false;
+
+        account.debit(amount);
+        return true;
+    }
+
+    private record Operation(UUID accountId, BigDecimal signedAmount, String actor,
+                             CompletableFuture<BankAccountResponse> result) { }
+
+    /**
+     * Single writer draining its queue in batches: the first operation opens a window, and every operation
+     * arriving before the window closes, up to the maximum batch size, joins the batch.
+     */
+    private final class Lane implements Runnable {
+
+        private final BlockingQueue<Operation> queue;
+
+        private volatile boolean running = true;
+
+        private volatile Thread thread;
+
+        private Lane(BlockingQueue<Operation> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            List<Operation> batch = new ArrayList<>(maxBatch);
+            long windowNanos = window.toNanos();
+
+            while (running) {
+                try {
+                    batch.add(queue.take());
+
+                    long deadline = System.nanoTime() + windowNanos;
+                    while (batch.size() < maxBatch) {
+                        long remaining = deadline - System.nanoTime();
+                        Operation next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                        if (next == null)
+                            break;
+                        batch.add(next);
+                    }
+
+                    apply(batch);
+                } catch (InterruptedException e) {
+                    running = false;
+                    batch.forEach(operation -> operation.result().completeExceptionally(stopped()));
+                } catch (RuntimeException e) {
+                    log.error("Account write lane failed on a batch of {} operations.", batch.size(), e);
+                    batch.forEach(operation -> operation.result().completeExceptionally(e));
+                } finally {
+                    batch.clear();
+                }
+            }
+
+            queue.forEach(operation -> operation.result().completeExceptionally(stopped()));
+        }
+
+        private static ServiceUnavailableException stopped() {
+            return new ServiceUnavailableException("The application is shutting down.");
+        }
+
+        private void stop() {
+            running = false;
+            Thread current = thread;
+            if (current != null)
+                current.interrupt();
+        }
+    }
+}
\ No newline at end of file
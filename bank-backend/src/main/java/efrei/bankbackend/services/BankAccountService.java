@@ -1,19 +1,28 @@
 package efrei.bankbackend.services;
 
+import efrei.bankbackend.contracts.BankAccountResponse;
+import efrei.bankbackend.contracts.PageResponse;
 import efrei.bankbackend.entities.BankAccount;
 import efrei.bankbackend.entities.RoleType;
 import efrei.bankbackend.exceptions.BaseException;
 import efrei.bankbackend.exceptions.ForbiddenOperationException;
+import efrei.bankbackend.exceptions.InsufficientFundsException;
+import efrei.bankbackend.exceptions.InvalidCursorException;
+import efrei.bankbackend.exceptions.InvalidAmountException;
 import efrei.bankbackend.exceptions.ResourceAlreadyExistsException;
 import efrei.bankbackend.exceptions.ResourceNotFoundException;
 import efrei.bankbackend.repositories.BankAccountRepository;
+import efrei.bankbackend.repositories.BankAccountSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 @Service
@@ -21,16 +30,55 @@ public class BankAccountService {
 
     private final BankAccountRepository bankAccountRepository;
     private final UserAccountService userAccountService;
+    private final TransactionRunner transactionRunner;
+    private final LedgerService ledgerService;
+    private final HotAccountService hotAccountService;
+    private final AccountWritePipeline accountWritePipeline;
+    private final AccountCache accountCache;
 
     private final static BigDecimal TRANSACTION_THRESHOLD = new BigDecimal(1000);
 
-    public BankAccountService(BankAccountRepository bankAccountRepository, UserAccountService userAccountService) {
+    public static final int MAX_PAGE_SIZE = 200;
+
+    public BankAccountService(BankAccountRepository bankAccountRepository, UserAccountService userAccountService,
+                              TransactionRunner transactionRunner, LedgerService ledgerService,
+                              HotAccountService hotAccountService, AccountWritePipeline accountWritePipeline,
+                              AccountCache accountCache) {
         this.bankAccountRepository = bankAccountRepository;
         this.userAccountService = userAccountService;
+        this.transactionRunner = transactionRunner;
+        this.ledgerService = ledgerService;
+        this.hotAccountService = hotAccountService;
+        this.accountWritePipeline = accountWritePipeline;
+        this.accountCache = accountCache;
     }
 
-    public List<BankAccount> all() {
-        return bankAccountRepository.findAll();
+    /**
+     * Returns a page of accounts in id order, read as projections without loading entities or owners.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size   the page size, capped to {@link #MAX_PAGE_SIZE}
+     * @return the page, with the cursor of the next page if any
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<BankAccountResponse> all(String cursor, int size) throws InvalidCursorException {
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<BankAccountSummary> summaries = cursor == null || cursor.isBlank()
+                ? bankAccountRepository.findFirstSummaries(limit)
+                : bankAccountRepository.findSummariesAfter(decodeCursor(cursor), limit);
+
+        boolean hasMore = summaries.size() > pageSize;
+        if (hasMore)
+            summaries = summaries.subList(0, pageSize);
+
+        List<BankAccountResponse> items = summaries.stream()
+                .map(this::toResponse)
+                .toList();
+
+        String nextCursor = hasMore ? encodeCursor(summaries.getLast().id()) : null;
+        return new PageResponse<>(items, nextCursor);
     }
 
     @Transactional
@@ -43,43 +91,214 @@ public class BankAccountService {
 
         BankAccount newBankAccount = new BankAccount();
         newBankAccount.setOwner(owner);
+        newBankAccount.setOwnerEmail(owner.getEmail());
         newBankAccount.setBalance(BigDecimal.ZERO);
 
         bankAccountRepository.save(newBankAccount);
         return newBankAccount;
     }
 
-    public BankAccount byOwner(String owner) throws BaseException {
-        return bankAccountRepository.findByOwnerEmail(owner)
+    /**
+     * Returns the account of a user, served by the account cache.
+     */
+    public BankAccountResponse byOwner(String owner) throws BaseException {
+        return accountCache.findByOwnerEmail(owner)
                 .orElseThrow(() -> new ResourceNotFoundException("No account found for owner '" + owner + "'."));
     }
 
-    @Transactional
-    public BankAccount credit(UUID accountId, BigDecimal amount) throws BaseException {
-        BankAccount account = getAccount(accountId);
+    /**
+     * Returns the balance of an account as shown to users, whether its balance is sharded or not.
+     */
+    public BigDecimal balanceOf(BankAccount account) {
+        return hotAccountService.balanceOf(account);
+    }
 
+    /**
+     * Changes the number of balance shards of a hot account, 0 turning sharding off.
+     */
+    public BankAccount reshard(UUID accountId, int shardCount) throws BaseException {
+        BankAccount account = hotAccountService.reshard(accountId, shardCount);
+        accountCache.evict(accountId);
+        return account;
+    }
+
+    /**
+     * Credits an account with a single atomic update, so that concurrent operations never lose an update,
+     * then reads the account back and records the change in the ledger within the same transaction.
+     * Sharded accounts are credited on one of their shards. When the write pipeline is enabled,
+     * credits of unsharded accounts are group-committed with the other operations of their lane, unless
+     * the credit joins a transaction already in progress.
+     */
+    public BankAccountResponse credit(UUID accountId, BigDecimal amount) throws BaseException {
         checkAmountByRole(amount);
 
-        account.credit(amount);
-        return account;
+        int shardCount = hotAccountService.shardCount(accountId);
+        if (isPipelined(shardCount))
+            return accountWritePipeline.execute(accountId, amount, LedgerService.currentActor());
+
+        return transactionRunner.execute(() -> {
+            boolean credited = shardCount > 0 && hotAccountService.credit(accountId, shardCount, amount);
+            if (!credited && bankAccountRepository.credit(accountId, amount) == 0)
+                throw accountNotFound(accountId);
+
+            BankAccount account = getAccount(accountId);
+            BigDecimal balance = hotAccountService.currentBalanceOf(account);
+            ledgerService.record(account, amount, balance);
+            accountCache.evictAfterCommit(accountId);
+            return toResponse(account, balance);
+        });
     }
 
-    @Transactional
-    public BankAccount debit(UUID accountId, BigDecimal amount) throws BaseException {
-        BankAccount account = getAccount(accountId);
+    /**
+     * Debits an account with a single atomic update, guarded by the balance, so that concurrent
+     * operations can neither lose an update nor overdraw the account. The change is recorded in the ledger
+     * within the same transaction. Sharded accounts are debited on their shards. When the write pipeline
+     * is enabled, debits of unsharded accounts are group-committed with the other operations of their lane,
+     * unless the debit joins a transaction already in progress.
+     */
+    public BankAccountResponse debit(UUID accountId, BigDecimal amount) throws BaseException {
+        checkAmountByRole(amount);
+
+        int shardCount = hotAccountService.shardCount(accountId);
+        if (isPipelined(shardCount))
+            return accountWritePipeline.execute(accountId, amount.negate(), LedgerService.currentActor());
+
+        return transactionRunner.execute(() -> {
+            boolean debited = shardCount > 0 && hotAccountService.debit(accountId, amount);
+            if (!debited && bankAccountRepository.debit(accountId, amount) == 0) {
+                if (!bankAccountRepository.existsById(accountId))
+                    throw accountNotFound(accountId);
+                throw new InsufficientFundsException("Insufficient funds on account '" + accountId + "' to debit " + amount + " €.");
+            }
+
+            BankAccount account = getAccount(accountId);
+            BigDecimal balance = hotAccountService.currentBalanceOf(account);
+            ledgerService.record(account, amount.negate(), balance);
+            accountCache.evictAfterCommit(accountId);
+            return toResponse(account, balance);
+        });
+    }
 
+    /**
+     * Whether an operation on an account is handed to the write pipeline. Operations joining a transaction
+     * already in progress, such as keyed ones which record their idempotency key, are never pipelined,
+     * since the lanes commit in transactions of their own.
+     */
+    private boolean isPipelined(int shardCount) {
+        return shardCount == 0 && accountWritePipeline.isEnabled()
+                && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    /**
+     * Moves funds between two accounts in a single transaction. Clients may only transfer from their own account.
+     *
+     * <p>Both accounts are locked in ascending id order before any change, whatever the direction of the
+     * transfer, each with its shards before its row, so concurrent transfers between the same accounts, and
+     * any other operation on them, queue up instead of deadlocking. The balances are then changed on the
+     * locked entities, or on their shards for sharded accounts, and both ledger entries are written.</p>
+     *
+     * @return the source account, with the balance it was left with by the transfer
+     */
+    public BankAccountResponse transfer(UUID sourceAccountId, UUID targetAccountId, BigDecimal amount) throws BaseException {
         checkAmountByRole(amount);
 
-        account.debit(amount);
-        return account;
+        if (sourceAccountId == null || targetAccountId == null)
+            throw new ResourceNotFoundException("Both the source and the target accounts are required.");
+
+        if (sourceAccountId.equals(targetAccountId))
+            throw new ForbiddenOperationException("You cannot transfer funds to the same account.");
+
+        String sourceOwner = accountCache.findById(sourceAccountId)
+                .orElseThrow(() -> accountNotFound(sourceAccountId))
+                .ownerEmail();
+        checkOwnership(sourceOwner);
+
+        return transactionRunner.execute(() -> {
+            boolean sourceFirst = sourceAccountId.compareTo(targetAccountId) < 0;
+            BankAccount first = lockAccount(sourceFirst ? sourceAccountId : targetAccountId);
+            BankAccount second = lockAccount(sourceFirst ? targetAccountId : sourceAccountId);
+
+            BankAccount source = sourceFirst ? first : second;
+            BankAccount target = sourceFirst ? second : first;
+
+            boolean debited = source.isSharded() && hotAccountService.debit(sourceAccountId, amount);
+            if (!debited) {
+                if (source.getBalance().compareTo(amount) < 0)
+                    throw new InsufficientFundsException("Insufficient funds on account '" + sourceAccountId + "' to transfer " + amount + " €.");
+                source.debit(amount);
+            }
+
+            if (!target.isSharded() || !hotAccountService.credit(targetAccountId, target.getShardCount(), amount))
+                target.credit(amount);
+
+            BigDecimal sourceBalance = hotAccountService.currentBalanceOf(source);
+            ledgerService.record(source, amount.negate(), sourceBalance);
+            ledgerService.record(target, amount, hotAccountService.currentBalanceOf(target));
+            accountCache.evictAfterCommit(sourceAccountId);
+            accountCache.evictAfterCommit(targetAccountId);
+            return toResponse(source, sourceBalance);
+        });
+    }
+
+    private BankAccount lockAccount(UUID accountId) throws ResourceNotFoundException {
+        return hotAccountService.lock(accountId)
+                .orElseThrow(() -> accountNotFound(accountId));
+    }
+
+    private void checkOwnership(String ownerEmail) throws ForbiddenOperationException {
+        Authentication authentication = Objects.requireNonNull(SecurityContextHolder.getContext().getAuthentication());
+
+        boolean isAdmin = authentication.getAuthorities()
+                .stream()
+                .anyMatch(authority -> RoleType.ROLE_ADMIN.name().equals(authority.getAuthority()));
+
+        if (!isAdmin && !ownerEmail.equals(authentication.getName()))
+            throw new ForbiddenOperationException("You cannot transfer funds from another user's account.");
     }
 
     private BankAccount getAccount(UUID accountId) throws ResourceNotFoundException {
         return bankAccountRepository.findById(accountId)
-                .orElseThrow(() -> new ResourceNotFoundException("No account found for id '" + accountId + "'."));
+                .orElseThrow(() -> accountNotFound(accountId));
     }
 
-    private void checkAmountByRole(BigDecimal amount) throws ForbiddenOperationException {
+    private BankAccountResponse toResponse(BankAccountSummary summary) {
+        return new BankAccountResponse(
+                summary.id(),
+                summary.ownerEmail(),
+                hotAccountService.balanceOf(summary.id(), summary.balance(), summary.shardCount())
+        );
+    }
+
+    private static String encodeCursor(UUID accountId) {
+        ByteBuffer buffer = ByteBuffer.allocate(16)
+                .putLong(accountId.getMostSignificantBits())
+                .putLong(accountId.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    private static UUID decodeCursor(String cursor) throws InvalidCursorException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+            if (buffer.remaining() != 16)
+                throw new InvalidCursorException();
+            return new UUID(buffer.getLong(), buffer.getLong());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    private static BankAccountResponse toResponse(BankAccount account, BigDecimal balance) {
+        return new BankAccountResponse(account.getId(), account.getOwnerEmail(), balance);
+    }
+
+    private static ResourceNotFoundException accountNotFound(UUID accountId) {
+        return new ResourceNotFoundException("No account found for id '" + accountId + "'.");
+    }
+
+    private void checkAmountByRole(BigDecimal amount) throws ForbiddenOperationException, InvalidAmountException {
+        if (amount == null || amount.signum() <= 0)
+            throw new InvalidAmountException("The amount must be strictly positive.");
+
         Authentication authentication = Objects.requireNonNull(SecurityContextHolder.getContext().getAuthentication());
 
         Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
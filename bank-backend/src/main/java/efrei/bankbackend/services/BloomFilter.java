@@ -0,0 +1,75 @@
+package efrei.bankbackend.services;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over digests of at least 128 bits, such as compact token digests.
+ *
+ * <p>The filter never yields false negatives: if {@link #mightContain(ByteBuffer)} returns false,
+ * the digest was never added. A positive answer must be confirmed against the authoritative store.
+ * Bit positions are derived from the digest itself using double hashing, so no additional
+ * hashing is performed on lookups.</p>
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    /**
+     * Creates a filter sized for the expected number of insertions and false-positive probability.
+     *
+     * @param expectedInsertions         number of entries the filter should hold
+     * @param falsePositiveProbability target false-positive rate, in (0, 1)
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Adds a digest to the filter.
+     *
+     * @param digest a digest of at least 16 bytes
+     */
+    public void put(ByteBuffer digest) {
+        long h1 = digest.getLong(0);
+        long h2 = digest.getLong(8);
+
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << index;
+            int word = (int) (index >>> 6);
+
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask))
+                current = bits.get(word);
+        }
+    }
+
+    /**
+     * Checks whether a digest may have been added to the filter.
+     *
+     * @param digest a digest of at least 16 bytes
+     * @return false if the digest was definitely never added, true otherwise
+     */
+    public boolean mightContain(ByteBuffer digest) {
+        long h1 = digest.getLong(0);
+        long h2 = digest.getLong(8);
+
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0)
+                return false;
+        }
+        return true;
+    }
+}
\ No newline at end of file
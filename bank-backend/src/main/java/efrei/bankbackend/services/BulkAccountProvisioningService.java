@@ -0,0 +1,323 @@
+package efrei.bankbackend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import efrei.bankbackend.contracts.BulkAccountResult;
+import efrei.bankbackend.contracts.BulkAccountResult.Status;
+import efrei.bankbackend.contracts.BulkProvisioningProgress;
+import efrei.bankbackend.contracts.BulkProvisioningProgress.State;
+import efrei.bankbackend.entities.UuidV7;
+import efrei.bankbackend.exceptions.BaseException;
+import efrei.bankbackend.exceptions.ResourceNotFoundException;
+import efrei.bankbackend.repositories.BankAccountRepository;
+import efrei.bankbackend.repositories.UserAccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.core.exc.JacksonIOException;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates bank accounts for large lists of owners, such as a partner onboarding.
+ *
+ * <p>Owner emails are read as a stream, one per line, and handled in chunks. Each chunk costs a single
+ * transaction: one {@code IN} query resolving the users, one {@code IN} query finding the accounts that
+ * already exist, and one JDBC batch inserting the new accounts. The outcome of every email is written to
+ * the report as soon as its chunk committed, and the counters of the job can be polled meanwhile.</p>
+ *
+ * <p>Emails are compared case-insensitively, as MySQL does, and accounts are created under the email
+ * of the user as stored. Each outcome is reported under the email of its input line.</p>
+ */
+@Slf4j
+@Service
+public class BulkAccountProvisioningService {
+
+    private static final String INSERT_ACCOUNT = """
+            insert into bank_accounts (account_id, owner_email, balance, shard_count, version)
+            values (?, ?, 0, 0, 0)
+            """;
+
+    private static final int MAX_EMAIL_LENGTH = 255;
+
+    private static final int MAX_CHUNK_ATTEMPTS = 2;
+
+    private final BankAccountRepository bankAccountRepository;
+    private final UserAccountRepository userAccountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionRunner transactionRunner;
+    private final ObjectWriter reportWriter;
+
+    private final Cache<UUID, Job> jobs;
+
+    @Value("${bank.bulk.chunk-size}")
+    private int chunkSize;
+
+    @Autowired
+    public BulkAccountProvisioningService(BankAccountRepository bankAccountRepository,
+                                          UserAccountRepository userAccountRepository,
+                                          JdbcTemplate jdbcTemplate, TransactionRunner transactionRunner,
+                                          ObjectMapper objectMapper, @Value("${bank.bulk.job-ttl}") Duration jobTtl) {
+        this.bankAccountRepository = bankAccountRepository;
+        this.userAccountRepository = userAccountRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionRunner = transactionRunner;
+        this.reportWriter = objectMapper.writer()
+                .withRootValueSeparator("")
+                .without(StreamWriteFeature.AUTO_CLOSE_TARGET);
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(jobTtl)
+                .build();
+    }
+
+    /**
+     * Registers a new job, so that its progress can be polled as soon as it starts.
+     *
+     * @return the job identifier
+     */
+    public UUID start() {
+        Job job = new Job(UuidV7.generate());
+        jobs.put(job.id, job);
+        return job.id;
+    }
+
+    /**
+     * Returns the progress of a job, kept for a while once it finished.
+     *
+     * @param jobId the job identifier
+     * @return the progress
+     * @throws ResourceNotFoundException if the job is unknown or expired
+     */
+    public BulkProvisioningProgress progress(UUID jobId) throws ResourceNotFoundException {
+        Job job = jobs.getIfPresent(jobId);
+        if (job == null)
+            throw new ResourceNotFoundException("No provisioning job found for id '" + jobId + "'.");
+        return job.progress();
+    }
+
+    /**
+     * Runs a job, reading owner emails from a stream and writing one NDJSON result per email to another.
+     *
+     * @param jobId  the job identifier, as returned by {@link #start()}
+     * @param input  the owner emails, one per line, blank lines being ignored
+     * @param output the report, left open
+     * @throws IOException if either stream failed, in which case the job is aborted after its last chunk
+     */
+    public void run(UUID jobId, InputStream input, OutputStream output) throws IOException {
+        Job job = jobs.getIfPresent(jobId);
+        if (job == null)
+            throw new IllegalStateException("Unknown provisioning job '" + jobId + "'.");
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        try (JsonGenerator generator = reportWriter.createGenerator(output)) {
+            List<String> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String email = line.strip();
+                if (email.isEmpty())
+                    continue;
+
+                chunk.add(email);
+                if (chunk.size() == chunkSize) {
+                    write(generator, provision(job, chunk));
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty())
+                write(generator, provision(job, chunk));
+
+            job.finish(State.COMPLETED);
+        } catch (IOException | RuntimeException e) {
+            job.finish(State.ABORTED);
+            throw e;
+        } finally {
+            BulkProvisioningProgress progress = job.progress();
+            log.info("Bulk provisioning job '{}' {}: processed={}, created={}, skipped={}, failed={}.", jobId,
+                    progress.state(), progress.processed(), progress.created(), progress.skipped(), progress.failed());
+        }
+    }
+
+    private List<BulkAccountResult> provision(Job job, List<String> chunk) {
+        BulkAccountResult[] results = new BulkAccountResult[chunk.size()];
+        Set<String> candidates = new LinkedHashSet<>();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            String email = chunk.get(i);
+            if (email.length() > MAX_EMAIL_LENGTH || email.indexOf('@') <= 0)
+                results[i] = new BulkAccountResult(email, Status.INVALID_EMAIL, null);
+            else if (!candidates.add(normalize(email)))
+                results[i] = new BulkAccountResult(email, Status.DUPLICATE, null);
+        }
+
+        Map<String, BulkAccountResult> outcomes = provision(candidates);
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] == null) {
+                BulkAccountResult outcome = outcomes.get(normalize(chunk.get(i)));
+                results[i] = new BulkAccountResult(chunk.get(i), outcome.status(), outcome.accountId());
+            }
+        }
+
+        List<BulkAccountResult> report = List.of(results);
+        job.record(report);
+        jobs.put(job.id, job);
+        return report;
+    }
+
+    /**
+     * Creates the accounts of a set of distinct normalized emails in one transaction. A chunk racing with
+     * another account creation for the same owner fails on the unique owner constraint, and is tried again once.
+     *
+     * @return the outcomes by normalized email
+     */
+    private Map<String, BulkAccountResult> provision(Set<String> emails) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionRunner.execute(() -> insert(emails));
+            } catch (DataIntegrityViolationException e) {
+                if (attempt < MAX_CHUNK_ATTEMPTS)
+                    continue;
+                return failed(emails, e);
+            } catch (BaseException | RuntimeException e) {
+                return failed(emails, e);
+            }
+        }
+    }
+
+    private Map<String, BulkAccountResult> insert(Set<String> emails) {
+        Map<String, BulkAccountResult> outcomes = new HashMap<>();
+        if (emails.isEmpty())
+            return outcomes;
+
+        Map<String, String> users = new HashMap<>();
+        for (String email : userAccountRepository.findEmailsIn(emails))
+            users.put(normalize(email), email);
+
+        Set<String> existing = new HashSet<>();
+        for (String ownerEmail : bankAccountRepository.findOwnerEmailsIn(emails))
+            existing.add(normalize(ownerEmail));
+
+        List<Object[]> rows = new ArrayList<>();
+        for (String email : emails) {
+            String userEmail = users.get(email);
+            if (userEmail == null) {
+                outcomes.put(email, new BulkAccountResult(email, Status.UNKNOWN_USER, null));
+            } else if (existing.contains(email)) {
+                outcomes.put(email, new BulkAccountResult(email, Status.ALREADY_EXISTS, null));
+            } else {
+                UUID accountId = UuidV7.generate();
+                rows.add(new Object[]{UuidV7.toBytes(accountId), userEmail});
+                outcomes.put(email, new BulkAccountResult(userEmail, Status.CREATED, accountId));
+            }
+        }
+
+        if (!rows.isEmpty())
+            jdbcTemplate.batchUpdate(INSERT_ACCOUNT, rows);
+        return outcomes;
+    }
+
+    private static Map<String, BulkAccountResult> failed(Set<String> emails, Exception e) {
+        log.warn("Bulk provisioning of {} accounts failed: {}", emails.size(), e.getMessage());
+
+        Map<String, BulkAccountResult> outcomes = new HashMap<>();
+        for (String email : emails)
+            outcomes.put(email, new BulkAccountResult(email, Status.FAILED, null));
+        return outcomes;
+    }
+
+    /**
+     * Writes the results of a chunk as NDJSON and flushes them to the client. Jackson reports I/O failures
+     * as unchecked {@link JacksonIOException}s; they are unwrapped so that a client going away aborts the job
+     * like any other I/O failure.
+     */
+    private static void write(JsonGenerator generator, List<BulkAccountResult> results) throws IOException {
+        try {
+            for (BulkAccountResult result : results) {
+                generator.writeStartObject();
+                generator.writeStringProperty("ownerEmail", result.ownerEmail());
+                generator.writeStringProperty("status", result.status().name());
+                if (result.accountId() == null)
+                    generator.writeNullProperty("accountId");
+                else
+                    generator.writeStringProperty("accountId", result.accountId().toString());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        } catch (JacksonIOException e) {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Job {
+
+        private final UUID id;
+
+        private final Instant startedAt = Instant.now();
+
+        private final AtomicLong processed = new AtomicLong();
+
+        private final AtomicLong created = new AtomicLong();
+
+        private final AtomicLong skipped = new AtomicLong();
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private volatile State state = State.RUNNING;
+
+        private volatile Instant finishedAt;
+
+        private Job(UUID id) {
+            this.id = id;
+        }
+
+        private void record(List<BulkAccountResult> results) {
+            for (BulkAccountResult result : results) {
+                switch (result.status()) {
+                    case CREATED -> created.incrementAndGet();
+                    case ALREADY_EXISTS, DUPLICATE -> skipped.incrementAndGet();
+                    default -> failed.incrementAndGet();
+                }
+            }
+            processed.addAndGet(results.size());
+        }
+
+        private void finish(State state) {
+            this.finishedAt = Instant.now();
+            this.state = state;
+        }
+
+        private BulkProvisioningProgress progress() {
+            return new BulkProvisioningProgress(id, state, processed.get(), created.get(), skipped.get(), failed.get(),
+                    startedAt, finishedAt);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,304 @@
+package efrei.bankbackend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import efrei.bankbackend.entities.BankAccount;
+import efrei.bankbackend.entities.BankAccountShard;
+import efrei.bankbackend.entities.BankAccountShardId;
+import efrei.bankbackend.exceptions.BaseException;
+import efrei.bankbackend.exceptions.ForbiddenOperationException;
+import efrei.bankbackend.exceptions.ResourceNotFoundException;
+import efrei.bankbackend.repositories.BankAccountRepository;
+import efrei.bankbackend.repositories.BankAccountShardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opt-in sharding of the balance of hot accounts, such as merchant or settlement accounts.
+ *
+ * <p>The balance of a sharded account is split across {@code shardCount} rows of
+ * {@link BankAccountShard}, on top of the account row itself. Credits go to a random shard; debits take
+ * the amount from a single shard covering it, picked at random from a lock-free read of the shards, and
+ * only when no shard covers it alone lock every shard to draw from all of them. The readable balance is
+ * the sum of the account row and its shards, served from a short-lived cached aggregate, which is dropped
+ * once a write to the account committed.</p>
+ *
+ * <p>Every transaction locks the rows of an account in the same order: its shards in slot order, then
+ * the account row. A single-shard credit or debit locks its shard, then the account row when its ledger
+ * entry references it. Every other writer, debits drawing from several shards, transfers, group commits
+ * and resharding, locks every shard before the row, as {@link #lock(UUID)} does, and writers spanning several
+ * accounts lock them in ascending id order. Concurrent operations thus queue up instead of deadlocking.</p>
+ *
+ * <p>Shard counts are cached as well. A stale count is harmless: a credit or debit that finds no shard
+ * falls back to the account row, which is always part of the balance.</p>
+ */
+@Slf4j
+@Service
+public class HotAccountService {
+
+    private final BankAccountRepository bankAccountRepository;
+    private final BankAccountShardRepository bankAccountShardRepository;
+    private final TransactionRunner transactionRunner;
+
+    private final Cache<UUID, Integer> shardCounts;
+    private final Cache<UUID, BigDecimal> shardBalances;
+
+    @Value("${bank.hot-accounts.max-shards}")
+    private int maxShards;
+
+    @Autowired
+    public HotAccountService(BankAccountRepository bankAccountRepository,
+                             BankAccountShardRepository bankAccountShardRepository,
+                             TransactionRunner transactionRunner,
+                             @Value("${bank.hot-accounts.cache-ttl}") Duration cacheTtl) {
+        this.bankAccountRepository = bankAccountRepository;
+        this.bankAccountShardRepository = bankAccountShardRepository;
+        this.transactionRunner = transactionRunner;
+        this.shardCounts = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(cacheTtl)
+                .build();
+        this.shardBalances = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    /**
+     * Returns the number of shards of an account, possibly slightly stale.
+     *
+     * @param accountId the account identifier
+     * @return the number of shards, 0 if the account is not sharded or does not exist
+     */
+    public int shardCount(UUID accountId) {
+        return shardCounts.get(accountId, id -> bankAccountRepository.findShardCountById(id).orElse(0));
+    }
+
+    /**
+     * Returns the readable balance of an account: its own balance plus, for a sharded account,
+     * the cached sum of its shards.
+     *
+     * @param account the account
+     * @return the balance of the account
+     */
+    public BigDecimal balanceOf(BankAccount account) {
+        return balanceOf(account.getId(), account.getBalance(), account.getShardCount());
+    }
+
+    /**
+     * Returns the readable balance of an account read as a projection.
+     *
+     * @param accountId  the account identifier
+     * @param balance    the balance of the account row
+     * @param shardCount the number of shards of the account
+     * @return the balance of the account
+     */
+    public BigDecimal balanceOf(UUID accountId, BigDecimal balance, int shardCount) {
+        if (shardCount == 0)
+            return balance;
+
+        return balance.add(shardBalances.get(accountId, bankAccountShardRepository::sumBalance));
+    }
+
+    /**
+     * Returns the balance of an account read as a projection, summing its shards afresh rather than
+     * reading the cached aggregate.
+     *
+     * @param accountId  the account identifier
+     * @param balance    the balance of the account row
+     * @param shardCount the number of shards of the account
+     * @return the balance of the account
+     */
+    public BigDecimal freshBalanceOf(UUID accountId, BigDecimal balance, int shardCount) {
+        if (shardCount == 0)
+            return balance;
+
+        return balance.add(bankAccountShardRepository.sumBalance(accountId));
+    }
+
+    /**
+     * Reads the balance of an account within the current transaction. The cached aggregate is dropped
+     * once the transaction committed, rather than refreshed with a sum other transactions must not see
+     * before then.
+     *
+     * @param account the account, read within the current transaction
+     * @return the balance of the account
+     */
+    public BigDecimal currentBalanceOf(BankAccount account) {
+        if (!account.isSharded())
+            return account.getBalance();
+
+        BigDecimal shards = bankAccountShardRepository.sumBalance(account.getId());
+        invalidateAfterCommit(account.getId());
+        return account.getBalance().add(shards);
+    }
+
+    /**
+     * Locks the shards of an account in slot order, then its row. Must run in a transaction.
+     *
+     * @param accountId the account identifier
+     * @return the locked account, or empty if it does not exist
+     * @throws ConcurrencyFailureException if the account was resharded between both locks, to run the transaction again
+     */
+    public Optional<BankAccount> lock(UUID accountId) {
+        return lockRow(accountId, bankAccountShardRepository.findBalancesForUpdateByAccountId(accountId).size());
+    }
+
+    /**
+     * Credits a random shard of an account. Must run in a transaction.
+     *
+     * @param accountId  the account identifier
+     * @param shardCount the number of shards of the account
+     * @param amount     the amount to credit
+     * @return false if the shard does not exist, in which case the account row must be credited instead
+     */
+    public boolean credit(UUID accountId, int shardCount, BigDecimal amount) {
+        int slot = ThreadLocalRandom.current().nextInt(shardCount);
+        return bankAccountShardRepository.credit(accountId, slot, amount) > 0;
+    }
+
+    /**
+     * Debits the shards of an account, and its row if needed. Must run in a transaction.
+     *
+     * <p>Reads the shard balances without locking them, and debits one of the shards covering the amount,
+     * picked at random, with a conditional update. Under repeatable read, a conditional update that fails
+     * keeps its lock, so a shard drained concurrently makes the whole transaction run again rather than lock
+     * other shards out of slot order. When no shard covers the amount alone, locks every shard in slot order,
+     * then the account row, and draws the amount from the shards first and from the row last. Shards are
+     * debited with conditional updates rather than through entities, which earlier updates of the same
+     * transaction may have left stale.</p>
+     *
+     * @param accountId the account identifier
+     * @param amount    the amount to debit
+     * @return false if the shards and the account row do not cover the amount together
+     * @throws ConcurrencyFailureException if the chosen shard was drained concurrently, to run the transaction again
+     */
+    public boolean debit(UUID accountId, BigDecimal amount) {
+        List<BigDecimal> balances = bankAccountShardRepository.findBalancesByAccountId(accountId);
+
+        List<Integer> covering = new ArrayList<>();
+        for (int slot = 0; slot < balances.size(); slot++) {
+            if (balances.get(slot).compareTo(amount) >= 0)
+                covering.add(slot);
+        }
+
+        if (!covering.isEmpty()) {
+            int slot = covering.get(ThreadLocalRandom.current().nextInt(covering.size()));
+            if (bankAccountShardRepository.debit(accountId, slot, amount) > 0)
+                return true;
+            throw new ConcurrencyFailureException("Shard " + slot + " of account '" + accountId + "' was drained concurrently.");
+        }
+
+        balances = bankAccountShardRepository.findBalancesForUpdateByAccountId(accountId);
+        BankAccount account = lockRow(accountId, balances.size()).orElseThrow();
+
+        BigDecimal total = balances.stream()
+                .reduce(account.getBalance(), BigDecimal::add);
+        if (total.compareTo(amount) < 0)
+            return false;
+
+        BigDecimal remaining = amount;
+        for (int slot = 0; slot < balances.size() && remaining.signum() > 0; slot++) {
+            BigDecimal drawn = balances.get(slot).min(remaining);
+            if (drawn.signum() > 0)
+                bankAccountShardRepository.debit(accountId, slot, drawn);
+            remaining = remaining.subtract(drawn);
+        }
+        if (remaining.signum() > 0)
+            account.debit(remaining);
+        return true;
+    }
+
+    /**
+     * Changes the number of shards of an account, 0 turning sharding off.
+     *
+     * <p>The shards and the account row are locked, in that order, then the whole balance is gathered into
+     * the first shard, or into the account row when sharding is turned off. Existing shard rows are updated
+     * in place rather than deleted and recreated, so operations waiting on them apply to a row that still
+     * exists.</p>
+     *
+     * @param accountId  the account identifier
+     * @param shardCount the new number of shards
+     * @return the updated account
+     */
+    public BankAccount reshard(UUID accountId, int shardCount) throws BaseException {
+        if (shardCount < 0 || shardCount > maxShards)
+            throw new ForbiddenOperationException("The number of shards must be between 0 and " + maxShards + ".");
+
+        BankAccount account = transactionRunner.execute(() -> {
+            List<BankAccountShard> shards = bankAccountShardRepository.findForUpdateByAccountId(accountId);
+            BankAccount locked = lockRow(accountId, shards.size())
+                    .orElseThrow(() -> new ResourceNotFoundException("No account found for id '" + accountId + "'."));
+
+            BigDecimal total = shards.stream()
+                    .map(BankAccountShard::getBalance)
+                    .reduce(locked.getBalance(), BigDecimal::add);
+
+            List<BankAccountShard> removed = new ArrayList<>();
+            for (BankAccountShard shard : shards) {
+                if (shard.getId().slot() < shardCount)
+                    shard.setBalance(BigDecimal.ZERO);
+                else
+                    removed.add(shard);
+            }
+            bankAccountShardRepository.deleteAll(removed);
+
+            for (int slot = shards.size() - removed.size(); slot < shardCount; slot++)
+                bankAccountShardRepository.save(BankAccountShard.of(new BankAccountShardId(accountId, slot), BigDecimal.ZERO));
+
+            if (shardCount > 0) {
+                bankAccountShardRepository.findById(new BankAccountShardId(accountId, 0))
+                        .orElseThrow()
+                        .setBalance(total);
+                locked.setBalance(BigDecimal.ZERO);
+            } else {
+                locked.setBalance(total);
+            }
+            locked.setShardCount(shardCount);
+            return locked;
+        });
+
+        shardCounts.invalidate(accountId);
+        shardBalances.invalidate(accountId);
+        log.info("Account resharded: accountId={}, shards={}.", accountId, shardCount);
+        return account;
+    }
+
+    /**
+     * Locks the row of an account whose shards are already locked, checking that none was added
+     * or removed in between.
+     */
+    private Optional<BankAccount> lockRow(UUID accountId, int lockedShards) {
+        Optional<BankAccount> account = bankAccountRepository.findForUpdateById(accountId);
+        if (account.isPresent() && account.get().getShardCount() != lockedShards)
+            throw new ConcurrencyFailureException("Account '" + accountId + "' was resharded while being locked.");
+        return account;
+    }
+
+    private void invalidateAfterCommit(UUID accountId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            shardBalances.invalidate(accountId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                shardBalances.invalidate(accountId);
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+package efrei.bankbackend.services;
+
+import efrei.bankbackend.contracts.BankAccountResponse;
+import efrei.bankbackend.entities.IdempotencyRecord;
+import efrei.bankbackend.exceptions.BaseException;
+import efrei.bankbackend.exceptions.IdempotencyKeyMismatchException;
+import efrei.bankbackend.repositories.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Makes account operations idempotent under client-supplied {@code Idempotency-Key}s.
+ *
+ * <p>Each key is scoped to its user and recorded in the database, along with the response of its
+ * operation, in the very transaction of the balance change. A key is therefore recorded if and only if its
+ * operation was applied, whatever happens to the request afterwards. Concurrent duplicates are settled by the
+ * unique constraint on the user and the key: the loser is rolled back and answered with the response of the
+ * winner. A key reused for a different operation or amount is rejected. Records are purged once older than
+ * {@code bank.idempotency.ttl}.</p>
+ *
+ * <p>Redis only caches the recorded responses, so that replays do not touch the database. It is written
+ * once the record is committed and never holds anything the database does not, so an unreachable Redis
+ * merely sends replays to the database.</p>
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private static final String KEY_PREFIX = "idempotency:";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionRunner transactionRunner;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${bank.idempotency.ttl}")
+    private Duration ttl;
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository, TransactionRunner transactionRunner,
+                              StringRedisTemplate redisTemplate) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionRunner = transactionRunner;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Account operation whose response can be replayed.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        BankAccountResponse run() throws BaseException;
+    }
+
+    /**
+     * Response of an idempotent operation.
+     *
+     * @param response the response of the first execution
+     * @param replayed whether it was answered from a previous execution
+     */
+    public record Result(BankAccountResponse response, boolean replayed) { }
+
+    /**
+     * Runs an operation at most once per user and idempotency key.
+     *
+     * <p>The operation joins the transaction which records the key, so it must run its database changes
+     * in the current transaction rather than in one of its own.</p>
+     *
+     * @param user           the authenticated user the key belongs to
+     * @param idempotencyKey the client-supplied key
+     * @param operationName  the name of the operation, such as {@code credit}
+     * @param accountId      the account the operation applies to
+     * @param amount         the amount of the operation
+     * @param operation      the operation
+     * @return the response of the first execution, and whether this is a replay
+     */
+    public Result execute(String user, String idempotencyKey, String operationName, UUID accountId, BigDecimal amount,
+                          Operation operation) throws BaseException {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH)
+            throw new IdempotencyKeyMismatchException("The Idempotency-Key header must hold between 1 and " + MAX_KEY_LENGTH + " characters.");
+
+        String key = KEY_PREFIX + user + ":" + idempotencyKey;
+        String fingerprint = operationName + ":" + accountId + ":" + amount.stripTrailingZeros().toPlainString();
+
+        Optional<BankAccountResponse> cached = cached(key, fingerprint);
+        if (cached.isPresent())
+            return new Result(cached.get(), true);
+
+        Optional<IdempotencyRecord> recorded = idempotencyRecordRepository.findByUserEmailAndIdempotencyKey(user, idempotencyKey);
+        if (recorded.isPresent())
+            return new Result(replay(key, fingerprint, recorded.get()), true);
+
+        BankAccountResponse response;
+        try {
+            response = transactionRunner.execute(() -> {
+                BankAccountResponse applied = operation.run();
+                idempotencyRecordRepository.saveAndFlush(IdempotencyRecord.of(user, idempotencyKey, fingerprint,
+                        applied.id(), applied.ownerEmail(), applied.balance()));
+                return applied;
+            });
+        } catch (DataIntegrityViolationException e) {
+            IdempotencyRecord winner = idempotencyRecordRepository.findByUserEmailAndIdempotencyKey(user, idempotencyKey)
+                    .orElseThrow(() -> e);
+            return new Result(replay(key, fingerprint, winner), true);
+        }
+
+        cache(key, fingerprint, response);
+        return new Result(response, false);
+    }
+
+    /**
+     * Deletes the records of the keys which can no longer be replayed.
+     */
+    @Scheduled(fixedDelayString = "${bank.idempotency.purge-interval}",
+            initialDelayString = "${bank.idempotency.purge-interval}")
+    public void purge() {
+        int purged = idempotencyRecordRepository.deleteCreatedBefore(Instant.now().minus(ttl));
+        if (purged > 0)
+            log.info("Purged {} expired idempotency keys.", purged);
+    }
+
+    private BankAccountResponse replay(String key, String fingerprint, IdempotencyRecord record) throws BaseException {
+        if (!fingerprint.equals(record.getFingerprint()))
+            throw mismatch();
+
+        BankAccountResponse response = new BankAccountResponse(record.getAccountId(), record.getOwnerEmail(), record.getBalance());
+        cache(key, fingerprint, response);
+        return response;
+    }
+
+    private Optional<BankAccountResponse> cached(String key, String fingerprint) throws BaseException {
+        String value;
+        try {
+            value = redisTemplate.opsForValue().get(key);
+        } catch (DataAccessException e) {
+            log.warn("Idempotency cache unavailable, reading key {} from the database: {}", key, e.getMessage());
+            return Optional.empty();
+        }
+        if (value == null)
+            return Optional.empty();
+
+        String[] fields = value.split("\n", 4);
+        if (!fingerprint.equals(fields[0]))
+            throw mismatch();
+        return Optional.of(new BankAccountResponse(UUID.fromString(fields[1]), fields[2], new BigDecimal(fields[3])));
+    }
+
+    /**
+     * Caches a recorded response. Records never change once committed, so an existing entry is kept as is.
+     */
+    private void cache(String key, String fingerprint, BankAccountResponse response) {
+        String value = String.join("\n", fingerprint, response.id().toString(), response.ownerEmail(),
+                response.balance().toPlainString());
+        try {
+            redisTemplate.opsForValue().setIfAbsent(key, value, ttl);
+        } catch (DataAccessException e) {
+            log.warn("The response of idempotency key {} could not be cached: {}", key, e.getMessage());
+        }
+    }
+
+    private static IdempotencyKeyMismatchException mismatch() {
+        return new IdempotencyKeyMismatchException("This Idempotency-Key was already used for a different operation.");
+    }
+}
\ No newline at end of file
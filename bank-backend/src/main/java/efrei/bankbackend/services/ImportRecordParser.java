@@ -0,0 +1,161 @@
+package efrei.bankbackend.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsers of single-line import records, kept minimal on purpose: one CSV line with RFC 4180 quoting,
+ * or one flat JSON object whose values are strings or {@code null}.
+ */
+final class ImportRecordParser {
+
+    private ImportRecordParser() {
+    }
+
+    /**
+     * Splits a CSV line into its fields. Quoted fields may contain commas and doubled quotes,
+     * but not line breaks.
+     *
+     * @param line the line
+     * @return the fields, unquoted
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted)
+            throw new IllegalArgumentException("unterminated quoted field");
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Parses a flat JSON object.
+     *
+     * @param line the line
+     * @return the members, with null values for JSON nulls
+     * @throws IllegalArgumentException if the line is not a flat object of strings
+     */
+    static Map<String, String> jsonFields(String line) {
+        JsonCursor cursor = new JsonCursor(line);
+        Map<String, String> fields = new HashMap<>();
+
+        cursor.expect('{');
+        if (!cursor.consume('}')) {
+            do {
+                String name = cursor.string();
+                cursor.expect(':');
+                fields.put(name, cursor.consumeNull() ? null : cursor.string());
+            } while (cursor.consume(','));
+            cursor.expect('}');
+        }
+
+        if (!cursor.atEnd())
+            throw new IllegalArgumentException("unexpected content after the object");
+        return fields;
+    }
+
+    private static final class JsonCursor {
+
+        private final String text;
+
+        private int position;
+
+        private JsonCursor(String text) {
+            this.text = text;
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+                position++;
+        }
+
+        private boolean consume(char expected) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char expected) {
+            if (!consume(expected))
+                throw new IllegalArgumentException("expected '" + expected + "' at position " + position);
+        }
+
+        private boolean consumeNull() {
+            skipWhitespace();
+            if (text.startsWith("null", position)) {
+                position += 4;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean atEnd() {
+            skipWhitespace();
+            return position == text.length();
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"')
+                    return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+
+                if (position >= text.length())
+                    break;
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length())
+                            throw new IllegalArgumentException("truncated unicode escape");
+                        value.append((char) Integer.parseInt(text, position, position + 4, 16));
+                        position += 4;
+                    }
+                    default -> throw new IllegalArgumentException("invalid escape '\\" + escaped + "'");
+                }
+            }
+            throw new IllegalArgumentException("unterminated string");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+package efrei.bankbackend.services;
+
+import efrei.bankbackend.entities.RoleType;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Immutable view of the claims of a JWT whose signature has already been verified.
+ *
+ * <p>Instances are produced once per token by {@link JwtService#verify(String)} and can be
+ * shared between threads and cached safely.</p>
+ *
+ * @param tokenId    the unique token identifier ({@code jti})
+ * @param subject    the token subject (the user email)
+ * @param userId     the user identifier
+ * @param role       the user role
+ * @param refreshFamilyId the refresh family of the login session the token belongs to, if any
+ * @param issuedAt   the instant the token was issued at, second precision
+ * @param expiration the instant after which the token must be rejected
+ */
+public record JwtClaims(String tokenId, String subject, UUID userId, RoleType role, String refreshFamilyId, Instant issuedAt, Instant expiration) {
+
+    /**
+     * Checks whether the token has expired at the given instant.
+     *
+     * @param now the reference instant
+     * @return true if the token is expired
+     */
+    public boolean isExpired(Instant now) {
+        return !expiration.isAfter(now);
+    }
+}
@@ -1,21 +1,29 @@
 package efrei.bankbackend.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import efrei.bankbackend.entities.RoleType;
+import efrei.bankbackend.entities.UserAccount;
+import efrei.bankbackend.exceptions.TokenInvalidException;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import java.security.Key;
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.Optional;
-import java.util.function.Function;
+import java.util.UUID;
 
 /**
  * Service class for managing JWT (JSON Web Token) operations such as generation, validation, blacklisting, and claim extraction.
@@ -23,10 +31,14 @@ import java.util.function.Function;
  */
 @Service
 public class JwtService {
-    private static final String BLACKLIST_PREFIX = "jwt:blacklist:";
-
     private static final String AUTHORIZATION_HEADER = "Authorization";
 
+    private static final String USER_ID_CLAIM = "uid";
+
+    private static final String ROLE_CLAIM = "role";
+
+    private static final String REFRESH_FAMILY_CLAIM = "fid";
+
     private static final String BEARER_PREFIX = "Bearer ";
 
     private static final int BEARER_PREFIX_LENGTH = BEARER_PREFIX.length();
@@ -37,25 +49,64 @@ public class JwtService {
     @Value("${security.jwt.expiration-time}")
     private long jwtExpiration;
 
-    private final StringRedisTemplate redisTemplate;
+    @Value("${security.jwt.verified-cache-size}")
+    private long verifiedCacheSize;
+
+    private final TokenBlacklist tokenBlacklist;
+
+    private final RefreshTokenService refreshTokenService;
+
+    private SecretKey signInKey;
+
+    private JwtParser parser;
+
+    private Cache<ByteBuffer, JwtClaims> verifiedTokens;
 
     @Autowired
-    public JwtService(StringRedisTemplate redisTemplate) {
-        this.redisTemplate = redisTemplate;
+    public JwtService(TokenBlacklist tokenBlacklist, RefreshTokenService refreshTokenService) {
+        this.tokenBlacklist = tokenBlacklist;
+        this.refreshTokenService = refreshTokenService;
+    }
+
+    /**
+     * Decodes the signing key and builds the thread-safe parser once, instead of on every request.
+     * Also creates the bounded cache of verified tokens, whose entries never outlive the token itself.
+     */
+    @PostConstruct
+    void init() {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parser()
+                .verifyWith(signInKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(Expiry.<ByteBuffer, JwtClaims>creating((digest, claims) ->
+                        Duration.between(Instant.now(), claims.expiration())))
+                .build();
     }
 
     /**
      * Generates a signed JWT for the given user.
      *
-     * @param userDetails authenticated user
+     * <p>The user identifier and role are embedded as claims, so that authenticated requests
+     * can be served without loading the user from the database. Each token carries a random
+     * {@code jti}, under which it can be revoked individually, and the refresh family of its
+     * login session, revoked along with it on logout.</p>
+     *
+     * @param userAccount authenticated user
+     * @param refreshFamilyId refresh family of the login session
      * @return signed JWT token
      */
-    public String generateToken(UserDetails userDetails) {
+    public String generateToken(UserAccount userAccount, String refreshFamilyId) {
         return Jwts.builder()
-                .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .id(UUID.randomUUID().toString())
+                .subject(userAccount.getEmail())
+                .claim(USER_ID_CLAIM, userAccount.getId().toString())
+                .claim(ROLE_CLAIM, userAccount.getRole().name())
+                .claim(REFRESH_FAMILY_CLAIM, refreshFamilyId)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + jwtExpiration))
+                .signWith(signInKey, Jwts.SIG.HS256)
                 .compact();
     }
 
@@ -84,8 +135,9 @@ public class JwtService {
      * Logs out a user by revoking the token contained in the header.
      *
      * <p>
-     * The token is stored in Redis with a TTL matching its remaining lifetime,
-     * ensuring immediate invalidation without memory leaks.
+     * The token is revoked through the {@link TokenBlacklist} with a TTL matching its remaining lifetime,
+     * ensuring immediate invalidation on every node without memory leaks. The refresh family of the
+     * login session is revoked as well, so the session cannot be refreshed anymore.
      * </p>
      *
      * @param authorizationHeader raw Authorization header
@@ -95,93 +147,122 @@ public class JwtService {
     }
 
     /**
-     * Adds the token to the Redis blacklist.
+     * Logs out a user from every device, by revoking all the tokens issued to them so far.
+     *
+     * <p>This costs a single Redis write regardless of the number of access tokens, and is also
+     * the way to invalidate sessions after a password change. Every refresh family of the user
+     * is revoked as well.</p>
+     *
+     * @param userId the user identifier
+     */
+    public void logoutEverywhere(UUID userId) {
+        tokenBlacklist.revokeAll(userId);
+        refreshTokenService.revokeAllFamilies(userId);
+    }
+
+    /**
+     * Adds the token to the blacklist.
      *
      * @param token JWT token to revoke
      */
     private void blacklistToken(String token) {
-        Date expiration = extractExpiration(token);
+        JwtClaims claims;
+        try {
+            claims = verify(token);
+        } catch (TokenInvalidException e) {
+            return;
+        }
 
-        long ttlMillis = expiration.getTime() - System.currentTimeMillis();
+        if (claims.refreshFamilyId() != null)
+            refreshTokenService.revokeFamily(claims.refreshFamilyId());
+
+        long ttlMillis = claims.expiration().toEpochMilli() - System.currentTimeMillis();
 
         if (ttlMillis <= 0) return;
 
-        redisTemplate.opsForValue().set(
-                buildKey(token),
-                "revoked",
-                Duration.ofMillis(ttlMillis)
-        );
+        tokenBlacklist.revoke(claims, Duration.ofMillis(ttlMillis));
     }
 
     /**
      * Checks whether a token has been revoked.
      *
-     * @param token JWT token
+     * @param claims verified claims of the JWT token
      * @return true if blacklisted
      */
-    private boolean isBlacklisted(String token) {
-        Boolean exists = redisTemplate.hasKey(buildKey(token));
-        return Boolean.TRUE.equals(exists);
+    private boolean isBlacklisted(JwtClaims claims) {
+        return tokenBlacklist.isRevoked(claims);
     }
 
     /**
-     * Validates the token against:
-     * <ul>
-     *     <li>Blacklist</li>
-     *     <li>Username match</li>
-     *     <li>Expiration</li>
-     * </ul>
+     * Verifies the token signature and expiration, and returns its claims.
+     *
+     * <p>The signature is only checked the first time a token is seen: the resulting claims are
+     * cached under the token digest until the token expires, so subsequent requests carrying the
+     * same token skip both the HMAC computation and the JSON parsing.</p>
      *
      * @param token JWT token
-     * @param userDetails expected user
-     * @return true if valid
+     * @return the verified claims
+     * @throws TokenInvalidException if the token is malformed, forged or expired
      */
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        if (isBlacklisted(token)) return false;
-
-        String username = extractUsername(token);
+    public JwtClaims verify(String token) throws TokenInvalidException {
+        ByteBuffer digest = TokenDigest.sha256(token);
 
-        return username.equals(userDetails.getUsername())
-                && !isTokenExpired(token);
-    }
-
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
+        JwtClaims claims = verifiedTokens.getIfPresent(digest);
+        if (claims == null) {
+            claims = parse(token);
+            verifiedTokens.put(digest, claims);
+        }
 
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
+        if (claims.isExpired(Instant.now()))
+            throw new TokenInvalidException();
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return claims;
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> resolver) {
-        return resolver.apply(extractAllClaims(token));
-    }
+    /**
+     * Validates already verified claims against:
+     * <ul>
+     *     <li>Blacklist</li>
+     *     <li>Expiration</li>
+     * </ul>
+     *
+     * @param claims claims returned by {@link #verify(String)} for the token
+     * @return true if valid
+     */
+    public boolean isTokenValid(JwtClaims claims) {
+        if (isBlacklisted(claims)) return false;
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return !claims.isExpired(Instant.now());
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private JwtClaims parse(String token) throws TokenInvalidException {
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            String userId = claims.get(USER_ID_CLAIM, String.class);
+            String role = claims.get(ROLE_CLAIM, String.class);
+
+            if (claims.getId() == null || claims.getSubject() == null || userId == null || role == null
+                    || claims.getIssuedAt() == null || claims.getExpiration() == null)
+                throw new TokenInvalidException();
+
+            return new JwtClaims(
+                    claims.getId(),
+                    claims.getSubject(),
+                    UUID.fromString(userId),
+                    RoleType.valueOf(role),
+                    claims.get(REFRESH_FAMILY_CLAIM, String.class),
+                    claims.getIssuedAt().toInstant(),
+                    claims.getExpiration().toInstant()
+            );
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new TokenInvalidException();
+        }
     }
 
     public long getExpirationTime() {
         return jwtExpiration;
     }
 
-    private String buildKey(String token) {
-        return BLACKLIST_PREFIX + token;
-    }
-
     public static String getAuthorizationHeader() {
         return AUTHORIZATION_HEADER;
     }
@@ -0,0 +1,163 @@
+package efrei.bankbackend.services;
+
+import efrei.bankbackend.contracts.LedgerEntryResponse;
+import efrei.bankbackend.contracts.PageResponse;
+import efrei.bankbackend.entities.BankAccount;
+import efrei.bankbackend.entities.LedgerEntry;
+import efrei.bankbackend.entities.RoleType;
+import efrei.bankbackend.exceptions.BaseException;
+import efrei.bankbackend.exceptions.ForbiddenOperationException;
+import efrei.bankbackend.exceptions.InvalidCursorException;
+import efrei.bankbackend.exceptions.ResourceNotFoundException;
+import efrei.bankbackend.repositories.LedgerEntryRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Append-only ledger of the balance changes of bank accounts.
+ *
+ * <p>Entries are recorded in the transaction of the balance change they describe, so the ledger
+ * and the balances can never disagree.</p>
+ */
+@Service
+public class LedgerService {
+
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final AccountCache accountCache;
+
+    public LedgerService(LedgerEntryRepository ledgerEntryRepository, AccountCache accountCache) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.accountCache = accountCache;
+    }
+
+    /**
+     * Records a balance change made by the authenticated user. Must run in the transaction of the change.
+     *
+     * @param account      the account
+     * @param signedAmount the signed amount, negative for a debit
+     * @param balanceAfter the balance of the account resulting from the change
+     */
+    public void record(BankAccount account, BigDecimal signedAmount, BigDecimal balanceAfter) {
+        record(account, signedAmount, balanceAfter, currentActor());
+    }
+
+    /**
+     * Records a balance change made by a given user, for changes applied outside of the request thread.
+     * Must run in the transaction of the change.
+     *
+     * @param account      the account
+     * @param signedAmount the signed amount, negative for a debit
+     * @param balanceAfter the balance of the account resulting from the change
+     * @param actor        the email of the user who made the change
+     */
+    public void record(BankAccount account, BigDecimal signedAmount, BigDecimal balanceAfter, String actor) {
+        ledgerEntryRepository.save(LedgerEntry.of(account, signedAmount, balanceAfter, actor));
+    }
+
+    /**
+     * Returns a page of the ledger of an account, newest entries first.
+     * Clients may only read the ledger of their own account.
+     *
+     * @param accountId the account identifier
+     * @param cursor    the cursor returned with the previous page, or null for the first page
+     * @param size      the page size, capped to {@link #MAX_PAGE_SIZE}
+     * @return the page, with the cursor of the next page if any
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<LedgerEntryResponse> statement(UUID accountId, String cursor, int size) throws BaseException {
+        checkReadAccess(accountId);
+
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<LedgerEntry> entries;
+        if (cursor == null || cursor.isBlank()) {
+            entries = ledgerEntryRepository.findLatest(accountId, limit);
+        } else {
+            Cursor position = Cursor.decode(cursor);
+            entries = ledgerEntryRepository.findBefore(accountId, position.createdAt(), position.id(), limit);
+        }
+
+        boolean hasMore = entries.size() > pageSize;
+        if (hasMore)
+            entries = entries.subList(0, pageSize);
+
+        List<LedgerEntryResponse> items = entries.stream()
+                .map(LedgerService::toResponse)
+                .toList();
+
+        String nextCursor = hasMore ? Cursor.of(entries.getLast()).encode() : null;
+        return new PageResponse<>(items, nextCursor);
+    }
+
+    private void checkReadAccess(UUID accountId) throws BaseException {
+        String ownerEmail = accountCache.findById(accountId)
+                .orElseThrow(() -> new ResourceNotFoundException("No account found for id '" + accountId + "'."))
+                .ownerEmail();
+
+        Authentication authentication = Objects.requireNonNull(SecurityContextHolder.getContext().getAuthentication());
+        boolean isAdmin = authentication.getAuthorities()
+                .stream()
+                .anyMatch(authority -> RoleType.ROLE_ADMIN.name().equals(authority.getAuthority()));
+
+        if (!isAdmin && !ownerEmail.equals(authentication.getName()))
+            throw new ForbiddenOperationException("You cannot read the transactions of another user's account.");
+    }
+
+    static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "system";
+    }
+
+    private static LedgerEntryResponse toResponse(LedgerEntry entry) {
+        return new LedgerEntryResponse(
+                entry.getId(),
+                entry.getAmount(),
+                entry.getBalanceAfter(),
+                entry.getActor(),
+                entry.getCreatedAt()
+        );
+    }
+
+    /**
+     * Keyset position of the last entry of a page, encoded as an opaque URL-safe string.
+     */
+    private record Cursor(Instant createdAt, UUID id) {
+
+        static Cursor of(LedgerEntry entry) {
+            return new Cursor(entry.getCreatedAt(), entry.getId());
+        }
+
+        String encode() {
+            String raw = createdAt.getEpochSecond() + "." + createdAt.getNano() + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        static Cursor decode(String cursor) throws InvalidCursorException {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+                int dot = raw.indexOf('.');
+                int colon = raw.indexOf(':');
+                Instant createdAt = Instant.ofEpochSecond(
+                        Long.parseLong(raw.substring(0, dot)),
+                        Long.parseLong(raw.substring(dot + 1, colon)));
+                return new Cursor(createdAt, UUID.fromString(raw.substring(colon + 1)));
+            } catch (RuntimeException e) {
+                throw new InvalidCursorException();
+            }
+        }
+    }
+}
\ No newline at end of file
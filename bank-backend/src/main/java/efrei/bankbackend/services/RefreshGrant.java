@@ -0,0 +1,10 @@
+package efrei.bankbackend.services;
+
+/**
+ * Result of issuing or rotating a refresh token.
+ *
+ * @param userEmail    the email of the user owning the refresh family
+ * @param familyId     the identifier of the refresh family, shared by every token of a login session
+ * @param refreshToken the new opaque refresh token, to be returned to the client
+ */
+public record RefreshGrant(String userEmail, String familyId, String refreshToken) { }
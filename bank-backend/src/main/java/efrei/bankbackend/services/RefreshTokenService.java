@@ -0,0 +1,178 @@
+package efrei.bankbackend.services;
+
+import efrei.bankbackend.entities.UserAccount;
+import efrei.bankbackend.exceptions.TokenInvalidException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Service class managing opaque, rotating refresh tokens stored in Redis.
+ *
+ * <p>A login starts a refresh family. Every refresh consumes the presented token and issues a new one
+ * in the same family, so access tokens can stay short-lived without paying a bcrypt verification
+ * each time they expire. Consumed tokens are remembered: presenting one again means it was stolen,
+ * and the whole family is revoked. Revoking a family is a single key deletion.</p>
+ *
+ * <p>Consuming a token and remembering it as used is a single atomic script, so that two concurrent
+ * replays of the same token cannot both miss it: exactly one consumes it, the other detects the reuse.
+ * Every refresh extends both the family and the set of families of its user, so that a long-lived family
+ * can always be found when all the families of a user are revoked.</p>
+ *
+ * <p>Tokens are only stored as compact digests, never in clear.</p>
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    private static final String TOKEN_PREFIX = "auth:refresh:token:";
+
+    private static final String USED_PREFIX = "auth:refresh:used:";
+
+    private static final String FAMILY_PREFIX = "auth:refresh:family:";
+
+    private static final String USER_FAMILIES_PREFIX = "auth:refresh:user:";
+
+    private static final int TOKEN_BYTES = 32;
+
+    private static final String CONSUMED = "c:";
+
+    private static final String REUSED = "r:";
+
+    private static final RedisScript<String> CONSUME = new DefaultRedisScript<>("""
+            local familyId = redis.call('GETDEL', KEYS[1])
+            if familyId then
+                redis.call('SET', KEYS[2], familyId, 'PX', ARGV[1])
+                return 'c:' .. familyId
+            end
+            local reusedFamilyId = redis.call('GET', KEYS[2])
+            if reusedFamilyId then
+                return 'r:' .. reusedFamilyId
+            end
+            return false
+            """, String.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final SecureRandom secureRandom;
+
+    @Value("${security.jwt.refresh-expiration-time}")
+    private long refreshExpiration;
+
+    @Autowired
+    public RefreshTokenService(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.secureRandom = new SecureRandom();
+    }
+
+    /**
+     * Starts a new refresh family for a freshly authenticated user.
+     *
+     * @param userAccount the authenticated user
+     * @return the first refresh token of the family
+     */
+    public RefreshGrant startFamily(UserAccount userAccount) {
+        String familyId = UUID.randomUUID().toString();
+        Duration ttl = getRefreshTtl();
+
+        redisTemplate.opsForValue().set(FAMILY_PREFIX + familyId, userAccount.getId() + ":" + userAccount.getEmail(), ttl);
+        redisTemplate.opsForSet().add(USER_FAMILIES_PREFIX + userAccount.getId(), familyId);
+        redisTemplate.expire(USER_FAMILIES_PREFIX + userAccount.getId(), ttl);
+
+        return new RefreshGrant(userAccount.getEmail(), familyId, issue(familyId, ttl));
+    }
+
+    /**
+     * Consumes a refresh token and issues the next one of its family.
+     *
+     * <p>A token can only be consumed once. Presenting an already consumed token revokes its family,
+     * logging out both the legitimate client and whoever replayed it.</p>
+     *
+     * @param refreshToken the refresh token presented by the client
+     * @return the rotated refresh token, along with its owner
+     * @throws TokenInvalidException if the token is unknown, expired, already used or its family is revoked
+     */
+    public RefreshGrant rotate(String refreshToken) throws TokenInvalidException {
+        if (refreshToken == null || refreshToken.isBlank())
+            throw new TokenInvalidException();
+
+        String digest = TokenDigest.compact(refreshToken);
+        Duration ttl = getRefreshTtl();
+        String outcome = redisTemplate.execute(CONSUME, List.of(TOKEN_PREFIX + digest, USED_PREFIX + digest),
+                Long.toString(ttl.toMillis()));
+
+        if (outcome == null)
+            throw new TokenInvalidException();
+
+        String familyId = outcome.substring(CONSUMED.length());
+        if (outcome.startsWith(REUSED)) {
+            log.warn("Refresh token reuse detected, revoking family={}.", familyId);
+            revokeFamily(familyId);
+            throw new TokenInvalidException();
+        }
+
+        String owner = redisTemplate.opsForValue().get(FAMILY_PREFIX + familyId);
+        if (owner == null)
+            throw new TokenInvalidException();
+
+        // Families are stored as "<userId>:<email>", and user identifiers never contain a colon.
+        int separator = owner.indexOf(':');
+        String userEmail = owner.substring(separator + 1);
+
+        redisTemplate.expire(FAMILY_PREFIX + familyId, ttl);
+        if (separator > 0)
+            redisTemplate.expire(USER_FAMILIES_PREFIX + owner.substring(0, separator), ttl);
+
+        return new RefreshGrant(userEmail, familyId, issue(familyId, ttl));
+    }
+
+    /**
+     * Revokes every refresh token of a family, including the ones not issued yet.
+     *
+     * @param familyId the family identifier
+     */
+    public void revokeFamily(String familyId) {
+        redisTemplate.delete(FAMILY_PREFIX + familyId);
+    }
+
+    /**
+     * Revokes every refresh family of a user.
+     *
+     * @param userId the user identifier
+     */
+    public void revokeAllFamilies(UUID userId) {
+        Set<String> familyIds = redisTemplate.opsForSet().members(USER_FAMILIES_PREFIX + userId);
+        if (familyIds != null && !familyIds.isEmpty())
+            redisTemplate.delete(familyIds.stream().map(familyId -> FAMILY_PREFIX + familyId).toList());
+
+        redisTemplate.delete(USER_FAMILIES_PREFIX + userId);
+    }
+
+    public long getRefreshExpirationTime() {
+        return refreshExpiration;
+    }
+
+    private String issue(String familyId, Duration ttl) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        redisTemplate.opsForValue().set(TOKEN_PREFIX + TokenDigest.compact(refreshToken), familyId, ttl);
+        return refreshToken;
+    }
+
+    private Duration getRefreshTtl() {
+        return Duration.ofMillis(refreshExpiration);
+    }
+}
\ No newline at end of file
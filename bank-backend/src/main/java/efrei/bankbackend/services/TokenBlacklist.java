@@ -0,0 +1,344 @@
+package efrei.bankbackend.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Revoked-token store backed by Redis, fronted by an in-process near-cache.
+ *
+ * <p>Two kinds of revocation are supported:</p>
+ * <ul>
+ *     <li>single tokens, stored under a compact 128-bit digest of their {@code jti};</li>
+ *     <li>every token of a user issued before a revocation epoch, stored as one small key per user,
+ *     which backs "log out everywhere" and password-change invalidation with a single write.</li>
+ * </ul>
+ *
+ * <p>Redis stays the source of truth. Every node keeps a local Bloom filter of revoked token digests
+ * and a map of user revocation epochs, bootstrapped from Redis at startup and kept up to date through
+ * a pub/sub channel on which every revocation is broadcast. Redis is only queried when the filter
+ * reports a possible hit, with both keys fetched by a single {@code MGET}.</p>
+ *
+ * <p>Bloom filters cannot forget entries, so two generations are kept and rotated every token lifetime:
+ * a revoked token expires at most one lifetime after its revocation, hence it can safely be dropped
+ * with the generation that follows the one it was added to. Epochs expire after one lifetime as well,
+ * once every token they cover has expired.</p>
+ *
+ * <p>Messages published while a node is disconnected from Redis are lost. When the listener container
+ * subscribes again, lookups fall back to Redis until the local state has been synchronized again,
+ * instead of waiting for the next periodic resync.</p>
+ */
+@Slf4j
+@Service
+public class TokenBlacklist implements MessageListener, SubscriptionListener {
+
+    public static final String CHANNEL = "jwt:blacklist:events";
+
+    private static final String REVOKED_PREFIX = "jwt:revoked:";
+
+    private static final String EPOCH_PREFIX = "jwt:epoch:";
+
+    private static final String TOKEN_EVENT = "t:";
+
+    private static final String EPOCH_EVENT = "e:";
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.001;
+
+    private static final int SCAN_PAGE_SIZE = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final Map<UUID, Long> epochs;
+
+    private final AtomicBoolean subscribed;
+
+    private final Counter negativeLookups;
+    private final Counter confirmedHits;
+    private final Counter falsePositives;
+    private final Counter fallbackLookups;
+
+    @Value("${security.jwt.blacklist.expected-revocations}")
+    private long expectedRevocations;
+
+    @Value("${security.jwt.expiration-time}")
+    private long jwtExpiration;
+
+    private volatile BloomFilter current;
+
+    private volatile BloomFilter previous;
+
+    private volatile boolean ready;
+
+    @Autowired
+    public TokenBlacklist(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.epochs = new ConcurrentHashMap<>();
+        this.subscribed = new AtomicBoolean();
+        this.negativeLookups = lookupCounter(meterRegistry, "negative");
+        this.confirmedHits = lookupCounter(meterRegistry, "hit");
+        this.falsePositives = lookupCounter(meterRegistry, "false_positive");
+        this.fallbackLookups = lookupCounter(meterRegistry, "fallback");
+    }
+
+    /**
+     * Revokes a token until its expiration, and broadcasts the revocation to every node.
+     *
+     * @param claims claims of the token to revoke
+     * @param ttl    remaining lifetime of the token
+     */
+    public void revoke(JwtClaims claims, Duration ttl) {
+        String digest = TokenDigest.compact(claims.tokenId());
+
+        redisTemplate.opsForValue().set(REVOKED_PREFIX + digest, "1", ttl);
+        add(TokenDigest.decodeCompact(digest));
+        redisTemplate.convertAndSend(CHANNEL, TOKEN_EVENT + digest);
+    }
+
+    /**
+     * Revokes every token of a user issued up to now, and broadcasts the revocation to every node.
+     *
+     * <p>Since {@code iat} only has a second precision, tokens issued during the same second as the
+     * revocation are revoked as well.</p>
+     *
+     * @param userId the user identifier
+     */
+    public void revokeAll(UUID userId) {
+        long epoch = Instant.now().getEpochSecond() + 1;
+
+        redisTemplate.opsForValue().set(EPOCH_PREFIX + userId, Long.toString(epoch), Duration.ofMillis(jwtExpiration));
+        epochs.merge(userId, epoch, Math::max);
+        redisTemplate.convertAndSend(CHANNEL, EPOCH_EVENT + userId + ":" + epoch);
+    }
+
+    /**
+     * Checks whether a token has been revoked, either on its own or through its user revocation epoch.
+     *
+     * <p>Until the local state has been bootstrapped from Redis, every lookup falls back to Redis.</p>
+     *
+     * @param claims claims of the token
+     * @return true if revoked
+     */
+    public boolean isRevoked(JwtClaims claims) {
+        Long epoch = epochs.get(claims.userId());
+        if (epoch != null && claims.issuedAt().getEpochSecond() < epoch)
+            return true;
+
+        String digest = TokenDigest.compact(claims.tokenId());
+
+        if (!ready) {
+            fallbackLookups.increment();
+            return existsInRedis(digest, claims);
+        }
+
+        ByteBuffer buffer = TokenDigest.decodeCompact(digest);
+        BloomFilter older = previous;
+        if (!current.mightContain(buffer) && (older == null || !older.mightContain(buffer))) {
+            negativeLookups.increment();
+            return false;
+        }
+
+        boolean revoked = existsInRedis(digest, claims);
+        (revoked ? confirmedHits : falsePositives).increment();
+        return revoked;
+    }
+
+    /**
+     * Applies a revocation broadcast by any node to the local state.
+     *
+     * @param message the pub/sub message carrying either a token digest or a user epoch
+     * @param pattern the matched pattern, unused
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String event = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (event.startsWith(TOKEN_EVENT)) {
+                add(TokenDigest.decodeCompact(event.substring(TOKEN_EVENT.length())));
+            } else if (event.startsWith(EPOCH_EVENT)) {
+                int separator = event.lastIndexOf(':');
+                UUID userId = UUID.fromString(event.substring(EPOCH_EVENT.length(), separator));
+                epochs.merge(userId, Long.parseLong(event.substring(separator + 1)), Math::max);
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed revocation message on channel {}.", CHANNEL);
+        }
+    }
+
+    /**
+     * Resynchronizes the local state whenever the revocation channel is subscribed again, after
+     * the listener container lost its connection to Redis.
+     *
+     * <p>Revocations broadcast during the outage were missed, so lookups fall back to Redis until
+     * the synchronization, which runs off the Redis client thread, has completed.</p>
+     *
+     * @param channel the subscribed channel
+     * @param count   the number of channels the connection is subscribed to
+     */
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        if (!CHANNEL.equals(new String(channel, StandardCharsets.UTF_8)) || !subscribed.getAndSet(true))
+            return;
+
+        log.info("Resubscribed to channel {}, synchronizing the token blacklist from Redis.", CHANNEL);
+        ready = false;
+        CompletableFuture.runAsync(this::synchronize);
+    }
+
+    /**
+     * Loads every revocation currently stored in Redis into the local state.
+     *
+     * <p>Runs once the application is ready, then periodically to recover from pub/sub messages
+     * missed while a node was disconnected from Redis. Expired epochs are dropped on the way.</p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${security.jwt.blacklist.resync-interval}",
+            initialDelayString = "${security.jwt.blacklist.resync-interval}")
+    public void synchronize() {
+        if (current == null)
+            current = newFilter();
+
+        long oldestLiveEpoch = Instant.now().minusMillis(jwtExpiration).getEpochSecond();
+        epochs.values().removeIf(epoch -> epoch < oldestLiveEpoch);
+
+        try {
+            long tokens = scan(REVOKED_PREFIX, page -> page.forEach(key -> parse(REVOKED_PREFIX, key,
+                    () -> add(TokenDigest.decodeCompact(key)))));
+            long users = scan(EPOCH_PREFIX, this::loadEpochs);
+            ready = true;
+            log.info("Token blacklist synchronized from Redis: tokens={}, users={}.", tokens, users);
+        } catch (RuntimeException e) {
+            log.warn("Token blacklist synchronization failed, lookups keep their current mode: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Starts a new filter generation and drops the oldest one.
+     *
+     * <p>Runs once per token lifetime, so an entry is kept for at least one full lifetime
+     * after it was added.</p>
+     */
+    @Scheduled(fixedRateString = "${security.jwt.expiration-time}",
+            initialDelayString = "${security.jwt.expiration-time}")
+    public void rotate() {
+        previous = current;
+        current = newFilter();
+    }
+
+    /**
+     * Scans the keys under a prefix and hands them over by pages, so that their values can be fetched
+     * with one round trip per page.
+     *
+     * @return the number of keys found
+     */
+    private long scan(String prefix, Consumer<List<String>> pageConsumer) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(prefix + "*")
+                .count(SCAN_PAGE_SIZE)
+                .build();
+
+        long count = 0;
+        List<String> page = new ArrayList<>(SCAN_PAGE_SIZE);
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            while (keys.hasNext()) {
+                page.add(keys.next().substring(prefix.length()));
+                if (page.size() == SCAN_PAGE_SIZE) {
+                    pageConsumer.accept(page);
+                    count += page.size();
+                    page.clear();
+                }
+            }
+        }
+        if (!page.isEmpty()) {
+            pageConsumer.accept(page);
+            count += page.size();
+        }
+        return count;
+    }
+
+    /**
+     * Fetches the revocation epochs of a page of users with a single {@code MGET}.
+     */
+    private void loadEpochs(List<String> userIds) {
+        List<String> values = redisTemplate.opsForValue().multiGet(userIds.stream()
+                .map(userId -> EPOCH_PREFIX + userId)
+                .toList());
+        if (values == null)
+            return;
+
+        for (int i = 0; i < userIds.size(); i++) {
+            String userId = userIds.get(i);
+            String epoch = values.get(i);
+            if (epoch != null)
+                parse(EPOCH_PREFIX, userId, () -> epochs.merge(UUID.fromString(userId), Long.parseLong(epoch), Math::max));
+        }
+    }
+
+    private static void parse(String prefix, String key, Runnable action) {
+        try {
+            action.run();
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed revocation key {}{}.", prefix, key);
+        }
+    }
+
+    private void add(ByteBuffer digest) {
+        BloomFilter filter = current;
+        if (filter == null) {
+            synchronized (this) {
+                if (current == null)
+                    current = newFilter();
+                filter = current;
+            }
+        }
+        filter.put(digest);
+    }
+
+    private boolean existsInRedis(String digest, JwtClaims claims) {
+        List<String> values = redisTemplate.opsForValue().multiGet(List.of(
+                REVOKED_PREFIX + digest,
+                EPOCH_PREFIX + claims.userId()
+        ));
+        if (values == null)
+            return false;
+
+        String epoch = values.get(1);
+        return values.get(0) != null
+                || (epoch != null && claims.issuedAt().getEpochSecond() < Long.parseLong(epoch));
+    }
+
+    private BloomFilter newFilter() {
+        return new BloomFilter(expectedRevocations, FALSE_POSITIVE_PROBABILITY);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("jwt.blacklist.lookups")
+                .description("Revoked-token lookups by outcome of the local Bloom filter")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package efrei.bankbackend.services;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Utility computing fixed-size digests of tokens.
+ *
+ * <p>Digests are used wherever a token has to be used as a lookup key, so that
+ * caches and stores never hold the raw token and always hash a small fixed-size value.</p>
+ */
+public final class TokenDigest {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private static final int COMPACT_LENGTH = 16;
+
+    private TokenDigest() {
+    }
+
+    /**
+     * Computes the SHA-256 digest of a token.
+     *
+     * @param token the raw token
+     * @return the digest wrapped in a read-only buffer usable as a map key
+     */
+    public static ByteBuffer sha256(String token) {
+        return ByteBuffer.wrap(digest(token)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Computes a compact 128-bit digest of a value, encoded as a 22 characters URL-safe string.
+     *
+     * @param value the value to digest
+     * @return the encoded digest
+     */
+    public static String compact(String value) {
+        byte[] digest = Arrays.copyOf(digest(value), COMPACT_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    /**
+     * Decodes a digest produced by {@link #compact(String)}.
+     *
+     * @param compact the encoded digest
+     * @return the 128-bit digest wrapped in a read-only buffer
+     * @throws IllegalArgumentException if the value is not a valid compact digest
+     */
+    public static ByteBuffer decodeCompact(String compact) {
+        byte[] digest = Base64.getUrlDecoder().decode(compact);
+        if (digest.length != COMPACT_LENGTH)
+            throw new IllegalArgumentException("Invalid digest length: " + digest.length);
+
+        return ByteBuffer.wrap(digest).asReadOnlyBuffer();
+    }
+
+    private static byte[] digest(String value) {
+        try {
+            return MessageDigest.getInstance(ALGORITHM)
+                    .digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+}
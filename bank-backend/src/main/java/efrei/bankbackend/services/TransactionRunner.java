@@ -0,0 +1,114 @@
+package efrei.bankbackend.services;
+
+import efrei.bankbackend.exceptions.BaseException;
+import efrei.bankbackend.exceptions.ConcurrentUpdateException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs operations in a transaction, retrying them when they fail because of concurrent updates.
+ *
+ * <p>Transient failures, such as a deadlock victim, a lock wait timeout or a stale optimistic version,
+ * roll the transaction back and the whole operation is run again, after a randomized exponential
+ * backoff so that competing requests do not retry in lockstep. Once the attempts are exhausted,
+ * a {@link ConcurrentUpdateException} is thrown. Business exceptions roll the transaction back
+ * and are rethrown as is, without retry.</p>
+ *
+ * <p>An operation run within a transaction already in progress joins it and is never retried on its own:
+ * its failure marks the enclosing transaction for rollback, so only the outermost runner may run the whole
+ * transaction again.</p>
+ */
+@Slf4j
+@Component
+public class TransactionRunner {
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${bank.transactions.max-attempts}")
+    private int maxAttempts;
+
+    @Value("${bank.transactions.retry-backoff}")
+    private Duration retryBackoff;
+
+    @Autowired
+    public TransactionRunner(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Operation run in a transaction, which may fail with a business exception.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface Operation<T> {
+        T run() throws BaseException;
+    }
+
+    /**
+     * Runs an operation in a new or the current transaction, retrying it on transient failures.
+     *
+     * @param operation the operation, which must be safe to run again from the start
+     * @return the result of the operation
+     * @throws BaseException the business exception thrown by the operation,
+     *                       or {@link ConcurrentUpdateException} once out of retries
+     */
+    public <T> T execute(Operation<T> operation) throws BaseException {
+        boolean nested = TransactionSynchronizationManager.isActualTransactionActive();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    try {
+                        return operation.run();
+                    } catch (BaseException e) {
+                        throw new OperationException(e);
+                    }
+                });
+            } catch (OperationException e) {
+                throw e.getCause();
+            } catch (TransientDataAccessException e) {
+                if (nested)
+                    throw e;
+                if (attempt >= maxAttempts) {
+                    log.warn("Transaction failed after {} attempts: {}", attempt, e.getMessage());
+                    throw new ConcurrentUpdateException();
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) throws ConcurrentUpdateException {
+        long ceiling = retryBackoff.toNanos() << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling) + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentUpdateException();
+        }
+    }
+
+    /**
+     * Carries a business exception through the transaction template, rolling the transaction back.
+     */
+    private static final class OperationException extends RuntimeException {
+
+        private OperationException(BaseException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized BaseException getCause() {
+            return (BaseException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package efrei.bankbackend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import efrei.bankbackend.entities.UserAccount;
+import efrei.bankbackend.repositories.UserAccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded, time-limited cache of user accounts by email, in front of {@link UserAccountRepository#findByEmail(String)}.
+ *
+ * <p>Used wherever a database-backed user is still needed outside of the login flow. Entries expire
+ * after a short TTL, which bounds staleness across nodes, and must be evicted explicitly through
+ * {@link #evict(String)} whenever a user account is modified on this node. Unknown emails are not cached.</p>
+ */
+@Service
+public class UserAccountCache {
+
+    private final UserAccountRepository userAccountRepository;
+
+    private final Cache<String, UserAccount> users;
+
+    @Autowired
+    public UserAccountCache(UserAccountRepository userAccountRepository,
+                            @Value("${security.user-cache.size}") long size,
+                            @Value("${security.user-cache.ttl}") Duration ttl) {
+        this.userAccountRepository = userAccountRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Retrieves a user by email, loading it from the database on a cache miss.
+     *
+     * @param email the user email
+     * @return the user account, or empty if no user has this email
+     */
+    public Optional<UserAccount> findByEmail(String email) {
+        return Optional.ofNullable(users.get(email, key -> userAccountRepository.findByEmail(key).orElse(null)));
+    }
+
+    /**
+     * Removes a user from the cache, so that the next lookup reads the database.
+     *
+     * @param email the user email
+     */
+    public void evict(String email) {
+        users.invalidate(email);
+    }
+}
@@ -5,56 +5,92 @@ import efrei.bankbackend.entities.UserAccount;
 import efrei.bankbackend.exceptions.BaseException;
 import efrei.bankbackend.exceptions.InvalidPasswordOrEmailException;
 import efrei.bankbackend.exceptions.ResourceNotFoundException;
+import efrei.bankbackend.exceptions.ServiceUnavailableException;
 import efrei.bankbackend.repositories.UserAccountRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * Service layer for handling client-related operations, such as authentication, registration,
  * and data retrieval. This class acts as a bridge between the controller and repository layers,
  * encapsulating business logic and data processing for clients.
  */
+@Slf4j
 @Service
 public class UserAccountService {
 
     private final UserAccountRepository userAccountRepository;
-    private final AuthenticationManager authenticationManager;
+    private final UserAccountCache userAccountCache;
+    private final PasswordEncoder passwordEncoder;
+    private final ExecutorService passwordHashingExecutor;
+
+    /**
+     * Hash compared against when the email is unknown, so that both outcomes cost one bcrypt verification.
+     */
+    private final String unknownUserHash;
+
+    @Value("${security.password.verification-timeout}")
+    private Duration verificationTimeout;
 
     /**
      * Constructs a new UserAccountService with the necessary dependencies.
      *
      * @param userAccountRepository    The repository for managing client data.
-     * @param authenticationManager The manager for handling authentication processes.
+     * @param userAccountCache      The cache of client data for read-mostly lookups.
+     * @param passwordEncoder       The encoder used to verify and hash passwords.
+     * @param passwordHashingExecutor The bounded executor running every bcrypt computation.
      */
     @Autowired
-    public UserAccountService(UserAccountRepository userAccountRepository, AuthenticationManager authenticationManager) {
+    public UserAccountService(UserAccountRepository userAccountRepository,
+                              UserAccountCache userAccountCache,
+                              PasswordEncoder passwordEncoder,
+                              @Qualifier("passwordHashingExecutor") ExecutorService passwordHashingExecutor) {
         this.userAccountRepository = userAccountRepository;
-        this.authenticationManager = authenticationManager;
+        this.userAccountCache = userAccountCache;
+        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.unknownUserHash = passwordEncoder.encode(UUID.randomUUID().toString());
     }
 
     /**
      * Authenticates a client based on the provided login credentials.
      *
+     * <p>The user is loaded once, and the password is verified on the bounded hashing executor.
+     * When the executor is saturated the login is rejected right away instead of queuing on the
+     * request thread. Hashes using an outdated cost factor are rehashed in the background.</p>
+     *
      * @param input The login request containing the client's email and password.
      * @return The authenticated ClientEntity.
-     * @throws BaseException If authentication fails or the user is not found.
+     * @throws BaseException If authentication fails, the user is not found or the executor is saturated.
      */
     public UserAccount authenticate(LoginRequest input) throws BaseException {
-        try {
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            input.email(),
-                            input.password()
-                    )
-            );
-        } catch (Exception e) {
+        if (input.email() == null || input.password() == null)
             throw new InvalidPasswordOrEmailException();
-        }
 
-        return userAccountRepository.findByEmail(input.email())
-                .orElseThrow(InvalidPasswordOrEmailException::new);
+        UserAccount userAccount = userAccountRepository.findByEmail(input.email()).orElse(null);
+        String storedHash = userAccount != null ? userAccount.getPassword() : unknownUserHash;
+
+        boolean matches = verifyPassword(input.password(), storedHash);
+        if (userAccount == null || !matches)
+            throw new InvalidPasswordOrEmailException();
+
+        if (passwordEncoder.upgradeEncoding(storedHash))
+            rehashPassword(userAccount, input.password());
+
+        return userAccount;
     }
 
     /**
@@ -68,4 +104,74 @@ public class UserAccountService {
         return userAccountRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new ResourceNotFoundException("No user found for email '" + userEmail + "'."));
     }
+
+    /**
+     * Retrieves a specific user by their unique email, served from the user cache when possible.
+     *
+     * @param userEmail The unique email of the user to be retrieved.
+     * @return The corresponding UserAccount, possibly a few seconds stale.
+     * @throws ResourceNotFoundException If no client with the provided email is found in the system.
+     */
+    public UserAccount getCachedClientByEmail(String userEmail) throws ResourceNotFoundException {
+        return userAccountCache.findByEmail(userEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("No user found for email '" + userEmail + "'."));
+    }
+
+    /**
+     * Verifies a password against a hash on the hashing executor, waiting at most the configured timeout.
+     *
+     * @param rawPassword The password to verify.
+     * @param hash        The stored hash.
+     * @return true if the password matches.
+     * @throws ServiceUnavailableException If the executor is saturated or the verification times out.
+     */
+    private boolean verifyPassword(String rawPassword, String hash) throws ServiceUnavailableException {
+        Future<Boolean> verification;
+        try {
+            verification = passwordHashingExecutor.submit(() -> passwordEncoder.matches(rawPassword, hash));
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Too many concurrent logins. Please try again shortly.");
+        }
+
+        try {
+            return verification.get(verificationTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            verification.cancel(true);
+            throw new ServiceUnavailableException("Too many concurrent logins. Please try again shortly.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Login interrupted. Please try again.");
+        } catch (ExecutionException e) {
+            log.warn("Password verification failed: {}", e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Rehashes a password with the current cost factor, in the background.
+     *
+     * <p>The update only applies if the stored hash is still the one that was verified, so a concurrent
+     * password change is never overwritten. The rehash is skipped when the executor is saturated,
+     * and retried on a later login.</p>
+     *
+     * @param userAccount The authenticated user.
+     * @param rawPassword The verified password.
+     */
+    private void rehashPassword(UserAccount userAccount, String rawPassword) {
+        UUID userId = userAccount.getId();
+        String email = userAccount.getEmail();
+        String previousHash = userAccount.getPassword();
+
+        try {
+            passwordHashingExecutor.execute(() -> {
+                int updated = userAccountRepository.updatePassword(userId, previousHash, passwordEncoder.encode(rawPassword));
+                if (updated > 0) {
+                    userAccountCache.evict(email);
+                    log.info("Password hash upgraded to the current cost factor for email={}.", email);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Skipping password rehash for email={}, hashing executor is saturated.", email);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,346 @@
+package efrei.bankbackend.services;
+
+import efrei.bankbackend.contracts.UserImportResponse;
+import efrei.bankbackend.entities.RoleType;
+import efrei.bankbackend.entities.UuidV7;
+import efrei.bankbackend.exceptions.BaseException;
+import efrei.bankbackend.exceptions.InvalidImportException;
+import efrei.bankbackend.exceptions.ServiceUnavailableException;
+import efrei.bankbackend.repositories.UserAccountRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+/**
+ * Imports user accounts from a CSV or NDJSON stream, such as a customer base migration.
+ *
+ * <p>Records are read one line at a time and handled in chunks, so memory stays flat whatever the size
+ * of the stream. For every chunk, emails are deduplicated within the chunk and against the existing users
+ * with one {@code IN} query, before any password is hashed. The remaining passwords are then hashed in
+ * parallel on a fork-join pool sized to the cores, separate from the login pool, and the users are
+ * inserted with one JDBC batch.</p>
+ *
+ * <p>Once a chunk committed, the position of the import is saved in Redis under its identifier.
+ * Posting the same stream again with the same identifier resumes after the last committed chunk;
+ * should a chunk commit without its checkpoint, its records are skipped as existing users.</p>
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    /**
+     * Import formats.
+     */
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private static final String INSERT_USER = """
+            insert into user_accounts (user_id, user_name, user_email, user_password, user_roles)
+            values (?, ?, ?, ?, ?)
+            """;
+
+    private static final String CHECKPOINT_PREFIX = "user-import:";
+
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private static final int MAX_FIELD_LENGTH = 255;
+
+    private static final int MAX_PASSWORD_BYTES = 72;
+
+    private static final int MAX_ERRORS = 100;
+
+    private static final int MAX_CHUNK_ATTEMPTS = 2;
+
+    private final UserAccountRepository userAccountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionRunner transactionRunner;
+    private final PasswordEncoder passwordEncoder;
+    private final StringRedisTemplate redisTemplate;
+    private final ForkJoinPool hashingPool;
+
+    @Value("${bank.import.chunk-size}")
+    private int chunkSize;
+
+    @Value("${bank.import.checkpoint-ttl}")
+    private Duration checkpointTtl;
+
+    @Autowired
+    public UserImportService(UserAccountRepository userAccountRepository, JdbcTemplate jdbcTemplate,
+                             TransactionRunner transactionRunner, PasswordEncoder passwordEncoder,
+                             StringRedisTemplate redisTemplate,
+                             @Value("${bank.import.hashing-threads}") int hashingThreads) {
+        this.userAccountRepository = userAccountRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionRunner = transactionRunner;
+        this.passwordEncoder = passwordEncoder;
+        this.redisTemplate = redisTemplate;
+        this.hashingPool = new ForkJoinPool(hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stop() {
+        hashingPool.shutdownNow();
+    }
+
+    /**
+     * Imports users from a stream.
+     *
+     * <p>CSV streams start with a header naming their columns, among {@code name}, {@code email},
+     * {@code password} and the optional {@code role}. NDJSON streams hold one object per line with
+     * the same members. Roles default to clients, and may only be clients or administrators. Invalid
+     * records are rejected and reported, without stopping the import; so are the records of a chunk
+     * that still conflicts with concurrent changes once retried.</p>
+     *
+     * @param importId the import identifier to resume, or null to start a new import
+     * @param format   the stream format
+     * @param input    the stream
+     * @return the outcome of this run
+     * @throws IOException if the stream could not be read, in which case the import can be resumed
+     */
+    public UserImportResponse importUsers(String importId, Format format, InputStream input) throws BaseException, IOException {
+        if (importId == null || importId.isBlank())
+            importId = UuidV7.generate().toString();
+        else if (!IMPORT_ID.matcher(importId).matches())
+            throw new InvalidImportException("The import identifier must be 1 to 64 letters, digits, '-' or '_'.");
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Map<String, Integer> columns = format == Format.CSV ? header(reader.readLine()) : null;
+
+        Run run = new Run(importId, checkpoint(importId));
+        long lineNumber = format == Format.CSV ? 1 : 0;
+        List<ImportedUser> chunk = new ArrayList<>(chunkSize);
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank())
+                continue;
+
+            run.position++;
+            if (run.position <= run.resumedFrom)
+                continue;
+
+            try {
+                chunk.add(parse(format, columns, line, lineNumber));
+            } catch (IllegalArgumentException e) {
+                run.reject(lineNumber, e.getMessage());
+            }
+
+            if (chunk.size() == chunkSize) {
+                persist(chunk, run);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            persist(chunk, run);
+        saveCheckpoint(run);
+
+        log.info("User import '{}' completed: resumedFrom={}, position={}, imported={}, skipped={}, rejected={}.",
+                importId, run.resumedFrom, run.position, run.imported, run.skipped, run.rejected);
+
+        return new UserImportResponse(importId, run.resumedFrom, run.position, run.imported, run.skipped,
+                run.rejected, run.errors);
+    }
+
+    private void persist(List<ImportedUser> chunk, Run run) throws BaseException {
+        // Emails are compared case-insensitively, like the collation of the unique email index.
+        Map<String, ImportedUser> distinct = new LinkedHashMap<>();
+        for (ImportedUser user : chunk) {
+            if (distinct.putIfAbsent(user.email().toLowerCase(Locale.ROOT), user) != null)
+                run.skipped++;
+        }
+
+        Map<String, String> hashes = new ConcurrentHashMap<>();
+        for (int attempt = 1; ; attempt++) {
+            Set<String> existing = new HashSet<>();
+            for (String email : userAccountRepository.findEmailsIn(distinct.keySet()))
+                existing.add(email.toLowerCase(Locale.ROOT));
+
+            List<ImportedUser> fresh = distinct.entrySet()
+                    .stream()
+                    .filter(entry -> !existing.contains(entry.getKey()))
+                    .map(Map.Entry::getValue)
+                    .toList();
+
+            hash(fresh, hashes);
+
+            List<Object[]> rows = fresh.stream()
+                    .map(user -> new Object[]{UuidV7.toBytes(UuidV7.generate()), user.name(), user.email(), hashes.get(user.email()), user.role().name()})
+                    .toList();
+
+            try {
+                transactionRunner.execute(() -> jdbcTemplate.batchUpdate(INSERT_USER, rows));
+                run.imported += fresh.size();
+            } catch (DataIntegrityViolationException e) {
+                if (attempt < MAX_CHUNK_ATTEMPTS)
+                    continue;
+
+                log.warn("User import '{}' could not insert a chunk of {} users: {}", run.importId, fresh.size(), e.getMessage());
+                for (ImportedUser user : fresh)
+                    run.reject(user.lineNumber(), "could not be inserted, conflicting with a concurrent change");
+            }
+
+            run.skipped += distinct.size() - fresh.size();
+            saveCheckpoint(run);
+            return;
+        }
+    }
+
+    private void hash(List<ImportedUser> users, Map<String, String> hashes) throws ServiceUnavailableException {
+        try {
+            hashingPool.submit(() -> users.parallelStream()
+                    .filter(user -> !hashes.containsKey(user.email()))
+                    .forEach(user -> hashes.put(user.email(), passwordEncoder.encode(user.password()))))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("The import was interrupted, it can be resumed.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Map<String, Integer> header(String line) throws InvalidImportException {
+        if (line == null)
+            throw new InvalidImportException("The CSV stream is empty.");
+
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        List<String> names = ImportRecordParser.csvFields(line);
+        for (int i = 0; i < names.size(); i++)
+            columns.put(names.get(i).strip().toLowerCase(Locale.ROOT), i);
+
+        for (String required : List.of("name", "email", "password")) {
+            if (!columns.containsKey(required))
+                throw new InvalidImportException("The CSV header has no '" + required + "' column.");
+        }
+        return columns;
+    }
+
+    private static ImportedUser parse(Format format, Map<String, Integer> columns, String line, long lineNumber) {
+        Map<String, String> fields;
+        if (format == Format.NDJSON) {
+            fields = ImportRecordParser.jsonFields(line);
+        } else {
+            List<String> values = ImportRecordParser.csvFields(line);
+            fields = new LinkedHashMap<>();
+            columns.forEach((name, index) -> fields.put(name, index < values.size() ? values.get(index) : null));
+        }
+
+        String name = required(fields, "name");
+        String email = required(fields, "email");
+        String password = fields.get("password");
+
+        if (email.indexOf('@') <= 0)
+            throw new IllegalArgumentException("invalid email");
+        if (password == null || password.isEmpty())
+            throw new IllegalArgumentException("missing password");
+        if (password.getBytes(StandardCharsets.UTF_8).length > MAX_PASSWORD_BYTES)
+            throw new IllegalArgumentException("password longer than " + MAX_PASSWORD_BYTES + " bytes");
+
+        return new ImportedUser(name, email, password, role(fields.get("role")), lineNumber);
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isBlank())
+            throw new IllegalArgumentException("missing " + name);
+        if (value.length() > MAX_FIELD_LENGTH)
+            throw new IllegalArgumentException(name + " longer than " + MAX_FIELD_LENGTH + " characters");
+        return value.strip();
+    }
+
+    /**
+     * Resolves the role of an imported user. Only clients and administrators may be imported.
+     */
+    private static RoleType role(String value) {
+        if (value == null || value.isBlank())
+            return RoleType.ROLE_CLIENT;
+
+        String role = value.strip().toUpperCase(Locale.ROOT);
+        return switch (role.startsWith("ROLE_") ? role : "ROLE_" + role) {
+            case "ROLE_CLIENT" -> RoleType.ROLE_CLIENT;
+            case "ROLE_ADMIN" -> RoleType.ROLE_ADMIN;
+            default -> throw new IllegalArgumentException("unsupported role '" + value + "'");
+        };
+    }
+
+    private long checkpoint(String importId) {
+        try {
+            String position = redisTemplate.opsForValue().get(CHECKPOINT_PREFIX + importId);
+            return position == null ? 0 : Long.parseLong(position);
+        } catch (RuntimeException e) {
+            log.warn("Could not read the checkpoint of import '{}', starting from the beginning: {}", importId, e.getMessage());
+            return 0;
+        }
+    }
+
+    private void saveCheckpoint(Run run) {
+        try {
+            redisTemplate.opsForValue().set(CHECKPOINT_PREFIX + run.importId, Long.toString(run.position), checkpointTtl);
+        } catch (RuntimeException e) {
+            log.warn("Could not save the checkpoint of import '{}' at {}: {}", run.importId, run.position, e.getMessage());
+        }
+    }
+
+    private record ImportedUser(String name, String email, String password, RoleType role, long lineNumber) { }
+
+    /**
+     * State of an import run. The position counts non-blank records, including those of previous runs.
+     */
+    private static final class Run {
+
+        private final String importId;
+
+        private final long resumedFrom;
+
+        private final List<String> errors = new ArrayList<>();
+
+        private long position;
+
+        private long imported;
+
+        private long skipped;
+
+        private long rejected;
+
+        private Run(String importId, long resumedFrom) {
+            this.importId = importId;
+            this.resumedFrom = resumedFrom;
+        }
+
+        private void reject(long lineNumber, String reason) {
+            rejected++;
+            if (errors.size() < MAX_ERRORS)
+                errors.add("line " + lineNumber + ": " + reason);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+-- Converts ledger entry identifiers from the BIGINT sequence values to BINARY(16) UUIDv7, on MySQL 8.
+--
+-- Only needed for databases created while ledger entries were numbered by ledger_entry_sequence;
+-- check the current type first:
+--   SELECT column_type FROM information_schema.columns
+--   WHERE table_schema = DATABASE() AND table_name = 'ledger_entries' AND column_name = 'entry_id';
+--
+-- Run once, with the application stopped, after a backup. Existing entries get a version 7 UUID built
+-- from their creation time and their former number, so they keep their relative order within the same
+-- millisecond, and sort before every entry created from now on. Statement cursors handed out before the
+-- migration become invalid.
+
+ALTER TABLE ledger_entries ADD COLUMN entry_uuid BINARY(16) NULL;
+
+UPDATE ledger_entries
+SET entry_uuid = UNHEX(CONCAT(
+        LPAD(HEX(FLOOR(UNIX_TIMESTAMP(created_at) * 1000)), 12, '0'),
+        '7', SUBSTRING(LPAD(HEX(entry_id), 18, '0'), 1, 3),
+        '8', SUBSTRING(LPAD(HEX(entry_id), 18, '0'), 4, 15)));
+
+ALTER TABLE ledger_entries
+    DROP INDEX idx_ledger_entries_account_created,
+    DROP PRIMARY KEY,
+    DROP COLUMN entry_id,
+    RENAME COLUMN entry_uuid TO entry_id;
+
+ALTER TABLE ledger_entries
+    MODIFY entry_id BINARY(16) NOT NULL,
+    ADD PRIMARY KEY (entry_id),
+    ADD INDEX idx_ledger_entries_account_created (account_id, created_at, entry_id);
+
+DROP TABLE IF EXISTS ledger_entry_sequence;
\ No newline at end of file
@@ -0,0 +1,38 @@
+-- Converts UUID identifier columns stored as text (CHAR/VARCHAR(36)) to BINARY(16), on MySQL 8.
+--
+-- Only needed for databases created while UUIDs were mapped to text; check the current types first:
+--   SELECT table_name, column_name, column_type
+--   FROM information_schema.columns
+--   WHERE table_schema = DATABASE() AND column_name IN ('user_id', 'account_id');
+--
+-- Run once, with the application stopped, after a backup. Existing identifiers keep their value:
+-- UUID_TO_BIN is called without its swap flag, so ids exposed by the API, such as
+-- /bank/accounts/{bankAccountId}/credit, do not change. Rows created from now on get time-ordered
+-- UUIDv7 identifiers, which coexist with the random ones already stored.
+--
+-- Each column first becomes VARBINARY(36), keeping its text, is then rewritten in place as 16 bytes,
+-- and finally becomes BINARY(16). Foreign key checks are disabled meanwhile, since referencing and
+-- referenced columns change type one after the other.
+
+SET FOREIGN_KEY_CHECKS = 0;
+
+ALTER TABLE user_accounts MODIFY user_id VARBINARY(36) NOT NULL;
+UPDATE user_accounts SET user_id = UUID_TO_BIN(user_id) WHERE LENGTH(user_id) = 36;
+ALTER TABLE user_accounts MODIFY user_id BINARY(16) NOT NULL;
+
+ALTER TABLE bank_accounts MODIFY account_id VARBINARY(36) NOT NULL;
+UPDATE bank_accounts SET account_id = UUID_TO_BIN(account_id) WHERE LENGTH(account_id) = 36;
+ALTER TABLE bank_accounts MODIFY account_id BINARY(16) NOT NULL;
+
+ALTER TABLE bank_account_shards MODIFY account_id VARBINARY(36) NOT NULL;
+UPDATE bank_account_shards SET account_id = UUID_TO_BIN(account_id) WHERE LENGTH(account_id) = 36;
+ALTER TABLE bank_account_shards MODIFY account_id BINARY(16) NOT NULL;
+
+ALTER TABLE ledger_entries MODIFY account_id VARBINARY(36) NOT NULL;
+UPDATE ledger_entries SET account_id = UUID_TO_BIN(account_id) WHERE LENGTH(account_id) = 36;
+ALTER TABLE ledger_entries MODIFY account_id BINARY(16) NOT NULL;
+
+SET FOREIGN_KEY_CHECKS = 1;
+
+-- Rebuilds the clustered indexes and reclaims the space freed by the narrower keys.
+OPTIMIZE TABLE user_accounts, bank_accounts, bank_account_shards, ledger_entries;
@@ -0,0 +1,141 @@
+package efrei.bankbackend.configuration.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicaRoutingDataSourceTest {
+
+    private static final Duration STICKY_WINDOW = Duration.ofSeconds(5);
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate writes;
+
+    private TransactionTemplate reads;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void routesReadOnlyTransactionsToTheReplica() {
+        ReplicaRoutingDataSource routing = routing("routing-reads", false);
+        routing.checkReplicas();
+
+        assertEquals("replica", read());
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, write());
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, jdbcTemplate.queryForObject("select name from node", String.class));
+    }
+
+    @Test
+    void readsFromThePrimaryUntilTheFirstHealthCheck() {
+        routing("routing-unchecked", false);
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, read());
+    }
+
+    @Test
+    void skipsReplicasFailingTheLagCheck() {
+        ReplicaRoutingDataSource routing = routing("routing-lag", true);
+        routing.checkReplicas();
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, read());
+    }
+
+    @Test
+    void readsItsOwnWritesDuringTheStickyWindow() {
+        ReplicaRoutingDataSource routing = routing("routing-sticky", false);
+        routing.checkReplicas();
+
+        authenticate("client@efrei.net");
+        write();
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, read());
+
+        authenticate("other@efrei.net");
+        assertEquals("replica", read());
+
+        authenticate("client@efrei.net");
+        nanos.addAndGet(STICKY_WINDOW.toNanos());
+        assertEquals("replica", read());
+    }
+
+    @Test
+    void readsWritesCommittedOnItsBehalfDuringTheStickyWindow() {
+        ReplicaRoutingDataSource routing = routing("routing-remembered", false);
+        routing.checkReplicas();
+
+        write();
+        routing.rememberWriter("client@efrei.net");
+
+        authenticate("client@efrei.net");
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, read());
+
+        authenticate("other@efrei.net");
+        assertEquals("replica", read());
+    }
+
+    private ReplicaRoutingDataSource routing(String database, boolean lagCheck) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+                node(database + "-primary", ReplicaRoutingDataSource.PRIMARY),
+                Map.of("replica-0", node(database + "-replica", "replica")),
+                Duration.ofSeconds(2), lagCheck, STICKY_WINDOW, nanos::get);
+        routing.afterPropertiesSet();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        writes = new TransactionTemplate(transactionManager);
+        reads = new TransactionTemplate(transactionManager);
+        reads.setReadOnly(true);
+        return routing;
+    }
+
+    private String read() {
+        return reads.execute(status -> jdbcTemplate.queryForObject("select name from node", String.class));
+    }
+
+    private String write() {
+        return writes.execute(status -> {
+            jdbcTemplate.update("update node set writes = writes + 1");
+            return jdbcTemplate.queryForObject("select name from node", String.class);
+        });
+    }
+
+    private static DataSource node(String database, String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table node (name varchar(16), writes int)");
+        jdbcTemplate.update("insert into node values (?, 0)", name);
+        return dataSource;
+    }
+
+    private static void authenticate(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(email, null, "ROLE_CLIENT"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeasedRateLimiterTest {
+
+    private static final int NODES = 4;
+
+    private static final int THREADS_PER_NODE = 8;
+
+    private static final int ATTEMPTS_PER_THREAD = 200;
+
+    private static final int LIMIT = 100;
+
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+
+    private static final Duration IDLE_LEASE = Duration.ofSeconds(1);
+
+    private static final Duration STORE_COOL_DOWN = Duration.ofSeconds(5);
+
+    @Test
+    void enforcesTheLimitAcrossNodes() throws InterruptedException {
+        AtomicLong clock = new AtomicLong(WINDOW.toMillis());
+        InMemoryPermitStore store = new InMemoryPermitStore();
+        List<LeasedRateLimiter> nodes = nodes(store, 10, clock);
+
+        assertEquals(LIMIT, hammer(nodes, "client@efrei.net"));
+        assertEquals(LIMIT, store.count());
+    }
+
+    @Test
+    void givesBackIdleLeasesToOtherNodes() {
+        AtomicLong clock = new AtomicLong(WINDOW.toMillis());
+        InMemoryPermitStore store = new InMemoryPermitStore();
+        List<LeasedRateLimiter> nodes = nodes(store, 10, clock);
+
+        for (int node = 0; node < NODES; node++)
+            assertEquals(0, nodes.get(node).tryAcquire("client@efrei.net"));
+        assertEquals(NODES * 10, store.count());
+
+        clock.addAndGet(IDLE_LEASE.toMillis());
+        nodes.forEach(LeasedRateLimiter::releaseIdleLeases);
+        assertEquals(NODES, store.count());
+
+        int granted = 0;
+        while (nodes.getFirst().tryAcquire("client@efrei.net") == 0)
+            granted++;
+        assertEquals(LIMIT - NODES, granted);
+    }
+
+    @Test
+    void fallsBackToLocalLimitsWhenTheStoreIsUnreachable() {
+        AtomicLong clock = new AtomicLong(WINDOW.toMillis());
+        PermitStore unreachable = new PermitStore() {
+            @Override
+            public int acquire(String key, int requested, int limit, Duration ttl) {
+                throw new IllegalStateException("Redis is down");
+            }
+
+            @Override
+            public void release(String key, int permits) {
+                throw new IllegalStateException("Redis is down");
+            }
+        };
+        LeasedRateLimiter node = new LeasedRateLimiter("test", unreachable,
+                RateLimitAlgorithm.GCRA.create(5, WINDOW, () -> clock.get() * 1_000_000), 5, WINDOW, 1, IDLE_LEASE, clock::get);
+
+        for (int attempt = 0; attempt < 5; attempt++)
+            assertEquals(0, node.tryAcquire("client@efrei.net"));
+        assertTrue(node.tryAcquire("client@efrei.net") > 0);
+    }
+
+    @Test
+    void leavesTheStoreAloneForACoolDownAfterAFailure() {
+        AtomicLong clock = new AtomicLong(WINDOW.toMillis());
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger(1);
+        InMemoryPermitStore reachable = new InMemoryPermitStore();
+        PermitStore flaky = new PermitStore() {
+            @Override
+            public int acquire(String key, int requested, int limit, Duration ttl) {
+                calls.incrementAndGet();
+                if (failures.getAndDecrement() > 0)
+                    throw new IllegalStateException("Redis is down");
+                return reachable.acquire(key, requested, limit, ttl);
+            }
+
+            @Override
+            public void release(String key, int permits) {
+                reachable.release(key, permits);
+            }
+        };
+        LeasedRateLimiter node = new LeasedRateLimiter("test", flaky,
+                RateLimitAlgorithm.GCRA.create(LIMIT, WINDOW, () -> clock.get() * 1_000_000), LIMIT, WINDOW, 1, IDLE_LEASE,
+                STORE_COOL_DOWN, clock::get, 1_000, 1_000_000, cause -> { });
+
+        for (int attempt = 0; attempt < 5; attempt++)
+            assertEquals(0, node.tryAcquire("client@efrei.net"));
+        assertEquals(1, calls.get());
+        assertEquals(0, reachable.count());
+
+        clock.addAndGet(STORE_COOL_DOWN.toMillis());
+        assertEquals(0, node.tryAcquire("client@efrei.net"));
+        assertEquals(2, calls.get());
+        assertEquals(1, reachable.count());
+    }
+
+    private static List<LeasedRateLimiter> nodes(PermitStore store, int leaseSize, AtomicLong clock) {
+        List<LeasedRateLimiter> nodes = new ArrayList<>();
+        for (int node = 0; node < NODES; node++) {
+            RateLimiter local = RateLimitAlgorithm.SLIDING_WINDOW.create(LIMIT, WINDOW, () -> clock.get() * 1_000_000);
+            nodes.add(new LeasedRateLimiter("test", store, local, LIMIT, WINDOW, leaseSize, IDLE_LEASE, clock::get));
+        }
+        return nodes;
+    }
+
+    private static int hammer(List<LeasedRateLimiter> nodes, String key) throws InterruptedException {
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(NODES * THREADS_PER_NODE);
+
+        for (LeasedRateLimiter node : nodes) {
+            for (int thread = 0; thread < THREADS_PER_NODE; thread++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                        if (node.tryAcquire(key) == 0)
+                            granted.incrementAndGet();
+                    }
+                });
+            }
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        return granted.get();
+    }
+
+    /**
+     * Stand-in for Redis, applying the same semantics as the Lua scripts of {@link RedisPermitStore}.
+     */
+    private static final class InMemoryPermitStore implements PermitStore {
+
+        private final Map<String, Integer> counters = new HashMap<>();
+
+        @Override
+        public synchronized int acquire(String key, int requested, int limit, Duration ttl) {
+            int current = counters.getOrDefault(key, 0);
+            int granted = Math.min(requested, limit - current);
+            if (granted <= 0)
+                return 0;
+
+            counters.put(key, current + granted);
+            return granted;
+        }
+
+        @Override
+        public synchronized void release(String key, int permits) {
+            int current = counters.getOrDefault(key, 0);
+            counters.put(key, current - Math.min(permits, current));
+        }
+
+        synchronized int count() {
+            return counters.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+}
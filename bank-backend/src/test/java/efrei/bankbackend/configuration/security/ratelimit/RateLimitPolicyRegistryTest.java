@@ -0,0 +1,69 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class RateLimitPolicyRegistryTest {
+
+    private static final String CLIENT = "client@efrei.net";
+
+    @Test
+    void sharesOneAllowanceAcrossTheRoutesOfABudget() {
+        RateLimitPolicyRegistry registry = registry(new MockEnvironment()
+                .withProperty("rate-limit.policies[0].pattern", "/bank/accounts/{id}/credit")
+                .withProperty("rate-limit.policies[0].limits.client", "2")
+                .withProperty("rate-limit.policies[0].budget", "money-movement")
+                .withProperty("rate-limit.policies[1].pattern", "/bank/accounts/{id}/debit")
+                .withProperty("rate-limit.policies[1].limits.client", "2")
+                .withProperty("rate-limit.policies[1].budget", "money-movement")
+                .withProperty("rate-limit.policies[2].pattern", "/auth/login")
+                .withProperty("rate-limit.policies[2].limits.client", "2"));
+
+        RateLimiter credit = registry.match("/bank/accounts/0190d3a8-7b2c-7def-8123-456789abcdef/credit").limiterFor("ROLE_CLIENT");
+        RateLimiter debit = registry.match("/bank/accounts/0190d3a8-7b2c-7def-8123-456789abcdef/debit").limiterFor("ROLE_CLIENT");
+        RateLimiter login = registry.match("/auth/login").limiterFor("ROLE_CLIENT");
+
+        assertSame(credit, debit);
+        assertNotSame(credit, login);
+
+        assertEquals(0, credit.tryAcquire(CLIENT));
+        assertEquals(0, debit.tryAcquire(CLIENT));
+        assertTrue(credit.tryAcquire(CLIENT) > 0);
+        assertTrue(debit.tryAcquire(CLIENT) > 0);
+        assertEquals(0, login.tryAcquire(CLIENT));
+    }
+
+    @Test
+    void rejectsBudgetsWhoseRoutesDisagreeOnTheirLimits() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("rate-limit.policies[0].pattern", "/bank/accounts/{id}/credit")
+                .withProperty("rate-limit.policies[0].limits.client", "5")
+                .withProperty("rate-limit.policies[0].budget", "money-movement")
+                .withProperty("rate-limit.policies[1].pattern", "/bank/transfers")
+                .withProperty("rate-limit.policies[1].limits.client", "15")
+                .withProperty("rate-limit.policies[1].budget", "money-movement");
+
+        assertThrows(IllegalArgumentException.class, () -> registry(environment));
+    }
+
+    private static RateLimitPolicyRegistry registry(MockEnvironment environment) {
+        RateLimiterFactory rateLimiterFactory = new RateLimiterFactory(mock(StringRedisTemplate.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(rateLimiterFactory, "mode", "local");
+        ReflectionTestUtils.setField(rateLimiterFactory, "maxKeys", 1_000L);
+        ReflectionTestUtils.setField(rateLimiterFactory, "maxBytes", 1_000_000L);
+
+        RateLimitPolicyRegistry registry = new RateLimitPolicyRegistry(environment, rateLimiterFactory);
+        registry.init();
+        return registry;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,140 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the limiter engines with the list of timestamps per key the rate limiter filter used to keep.
+ *
+ * <p>Every thread cycles through its own users, so that the former engine, which is not thread-safe
+ * for a shared key, is measured on the very workload it supported. Run with
+ * {@code mvn test-compile} followed by {@link #main(String[])} on the test classpath.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class RateLimiterBenchmark {
+
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+
+    private static final int USERS_PER_THREAD = 1_024;
+
+    @Param({"5", "100"})
+    private int limit;
+
+    private final AtomicInteger threads = new AtomicInteger();
+
+    private TimestampListRateLimiter timestampList;
+
+    private RateLimiter slidingWindow;
+
+    private RateLimiter gcra;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        timestampList = new TimestampListRateLimiter(limit, WINDOW);
+        slidingWindow = RateLimitAlgorithm.SLIDING_WINDOW.create(limit, WINDOW);
+        gcra = RateLimitAlgorithm.GCRA.create(limit, WINDOW);
+    }
+
+    @State(Scope.Thread)
+    public static class Users {
+
+        private String[] keys;
+
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(RateLimiterBenchmark benchmark) {
+            int thread = benchmark.threads.getAndIncrement();
+            keys = new String[USERS_PER_THREAD];
+            for (int i = 0; i < keys.length; i++)
+                keys[i] = "client-" + thread + "-" + i + "@efrei.net";
+        }
+
+        String next() {
+            String key = keys[next];
+            next = (next + 1) % keys.length;
+            return key;
+        }
+    }
+
+    @Benchmark
+    public long timestampList(Users users) {
+        return timestampList.tryAcquire(users.next());
+    }
+
+    @Benchmark
+    public long slidingWindow(Users users) {
+        return slidingWindow.tryAcquire(users.next());
+    }
+
+    @Benchmark
+    public long gcra(Users users) {
+        return gcra.tryAcquire(users.next());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RateLimiterBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * The engine of the former rate limiter filter, answering with the wait instead of throwing it.
+     */
+    private static final class TimestampListRateLimiter {
+
+        private final Map<String, List<Instant>> userRequests = new ConcurrentHashMap<>();
+
+        private final int maxRequests;
+
+        private final long windowSeconds;
+
+        private TimestampListRateLimiter(int maxRequests, Duration window) {
+            this.maxRequests = maxRequests;
+            this.windowSeconds = window.toSeconds();
+        }
+
+        long tryAcquire(String key) {
+            Instant now = Instant.now();
+            List<Instant> requests = userRequests.computeIfAbsent(key, k -> new ArrayList<>());
+
+            requests.removeIf(timestamp -> timestamp.isBefore(now.minusSeconds(windowSeconds)));
+
+            if (requests.size() >= maxRequests) {
+                Instant earliest = Collections.min(requests);
+                return TimeUnit.SECONDS.toNanos(windowSeconds - (now.getEpochSecond() - earliest.getEpochSecond()));
+            }
+
+            requests.add(now);
+            return 0;
+        }
+    }
+}
\ No newline at end of file
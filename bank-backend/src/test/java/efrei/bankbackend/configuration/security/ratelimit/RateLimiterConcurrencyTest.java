@@ -0,0 +1,86 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    private static final int ATTEMPTS_PER_THREAD = 1_000;
+
+    private static final int LIMIT = 50;
+
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+
+    @ParameterizedTest
+    @EnumSource(RateLimitAlgorithm.class)
+    void grantsExactlyTheLimitUnderContention(RateLimitAlgorithm algorithm) throws InterruptedException {
+        AtomicLong clock = new AtomicLong(1_000_000_000L);
+        RateLimiter rateLimiter = algorithm.create(LIMIT, WINDOW, clock::get);
+
+        assertEquals(LIMIT, hammer(rateLimiter, "client@efrei.net"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(RateLimitAlgorithm.class)
+    void grantsNewPermitsOnceTheWindowHasPassed(RateLimitAlgorithm algorithm) throws InterruptedException {
+        AtomicLong clock = new AtomicLong(1_000_000_000L);
+        RateLimiter rateLimiter = algorithm.create(LIMIT, WINDOW, clock::get);
+
+        assertEquals(LIMIT, hammer(rateLimiter, "client@efrei.net"));
+
+        long waitNanos = rateLimiter.tryAcquire("client@efrei.net");
+        assertTrue(waitNanos > 0 && waitNanos <= 2 * WINDOW.toNanos());
+
+        clock.addAndGet(2 * WINDOW.toNanos());
+        assertEquals(LIMIT, hammer(rateLimiter, "client@efrei.net"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(RateLimitAlgorithm.class)
+    void keepsKeysIndependent(RateLimitAlgorithm algorithm) throws InterruptedException {
+        AtomicLong clock = new AtomicLong(1_000_000_000L);
+        RateLimiter rateLimiter = algorithm.create(LIMIT, WINDOW, clock::get);
+
+        assertEquals(LIMIT, hammer(rateLimiter, "first@efrei.net"));
+        assertEquals(LIMIT, hammer(rateLimiter, "second@efrei.net"));
+    }
+
+    private static int hammer(RateLimiter rateLimiter, String key) throws InterruptedException {
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                    if (rateLimiter.tryAcquire(key) == 0)
+                        granted.incrementAndGet();
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        return granted.get();
+    }
+}
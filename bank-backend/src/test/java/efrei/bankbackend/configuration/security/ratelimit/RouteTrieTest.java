@@ -0,0 +1,45 @@
+package efrei.bankbackend.configuration.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RouteTrieTest {
+
+    private final RouteTrie<String> routes = RouteTrie.<String>builder()
+            .add("/auth/login", "login")
+            .add("/bank/accounts/{id}/credit", "credit")
+            .add("/bank/accounts/{id}/debit", "debit")
+            .add("/bank/accounts/all/credit", "all")
+            .build();
+
+    @Test
+    void matchesLiteralAndVariableSegments() {
+        assertEquals("login", routes.match("/auth/login"));
+        assertEquals("credit", routes.match("/bank/accounts/3f2504e0-4f89-11d3-9a0c-0305e82c3301/credit"));
+        assertEquals("debit", routes.match("/bank/accounts/42/debit"));
+    }
+
+    @Test
+    void prefersLiteralsAndFallsBackToVariables() {
+        assertEquals("all", routes.match("/bank/accounts/all/credit"));
+        assertEquals("debit", routes.match("/bank/accounts/all/debit"));
+    }
+
+    @Test
+    void ignoresUnknownAndPartialPaths() {
+        assertNull(routes.match("/bank/accounts/42"));
+        assertNull(routes.match("/bank/accounts//credit"));
+        assertNull(routes.match("/auth/login/"));
+        assertNull(routes.match("/auth/logout"));
+        assertNull(routes.match(""));
+    }
+
+    @Test
+    void rejectsDuplicatePatterns() {
+        RouteTrie.Builder<String> builder = RouteTrie.<String>builder().add("/bank/accounts/{id}", "a");
+        assertThrows(IllegalArgumentException.class, () -> builder.add("/bank/accounts/{accountId}", "b"));
+    }
+}
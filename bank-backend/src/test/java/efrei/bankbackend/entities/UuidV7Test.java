@@ -0,0 +1,61 @@
+package efrei.bankbackend.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidV7Test {
+
+    @Test
+    void setsTheVersionAndVariant() {
+        UUID id = UuidV7.generate();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+    }
+
+    @Test
+    void embedsTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7.generate();
+        long after = System.currentTimeMillis();
+
+        // The timestamp may run slightly ahead of the clock after a burst overflowed the counter.
+        long millis = id.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= after + 100, "timestamp " + millis + " outside [" + before + ", " + after + "]");
+    }
+
+    @Test
+    void isStrictlyIncreasingInByteOrder() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++)
+            ids.add(UuidV7.generate());
+
+        Set<UUID> distinct = new HashSet<>(ids);
+        assertEquals(ids.size(), distinct.size());
+
+        for (int i = 1; i < ids.size(); i++)
+            assertTrue(Long.compareUnsigned(ids.get(i - 1).getMostSignificantBits(), ids.get(i).getMostSignificantBits()) < 0);
+    }
+
+    @Test
+    void packsIdentifiersMostSignificantBitsFirst() {
+        UUID id = UUID.fromString("0192f0c4-1e2a-7b3c-8d4e-5f60718293a4");
+
+        byte[] bytes = UuidV7.toBytes(id);
+
+        assertArrayEquals(new byte[]{0x01, (byte) 0x92, (byte) 0xf0, (byte) 0xc4, 0x1e, 0x2a, 0x7b, 0x3c,
+                (byte) 0x8d, 0x4e, 0x5f, 0x60, 0x71, (byte) 0x82, (byte) 0x93, (byte) 0xa4}, bytes);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        assertEquals(id, new UUID(buffer.getLong(), buffer.getLong()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package efrei.bankbackend.services;
+
+import efrei.bankbackend.contracts.BankAccountResponse;
+import efrei.bankbackend.repositories.BankAccountRepository;
+import efrei.bankbackend.repositories.BankAccountShardRepository;
+import efrei.bankbackend.repositories.BankAccountSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AccountCacheTest {
+
+    private static final UUID ACCOUNT_ID = UUID.randomUUID();
+
+    private static final String OWNER = "client@efrei.net";
+
+    private static final Duration LOCAL_TTL = Duration.ofSeconds(5);
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private BankAccountRepository bankAccountRepository;
+
+    private BankAccountShardRepository bankAccountShardRepository;
+
+    private HotAccountService hotAccountService;
+
+    private AccountCache accountCache;
+
+    @BeforeEach
+    void setUp() {
+        bankAccountRepository = mock(BankAccountRepository.class);
+        bankAccountShardRepository = mock(BankAccountShardRepository.class);
+        hotAccountService = new HotAccountService(bankAccountRepository, bankAccountShardRepository,
+                mock(TransactionRunner.class), Duration.ofSeconds(1));
+
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenThrow(new RedisConnectionFailureException("Redis is down"));
+
+        accountCache = new AccountCache(bankAccountRepository, hotAccountService, redisTemplate, meterRegistry,
+                100, LOCAL_TTL, Duration.ofSeconds(30), nanos::get);
+        committed(BigDecimal.TEN);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void missedEvictionsAreBoundedByTheLocalTtl() {
+        assertEquals(BigDecimal.TEN, balance());
+
+        committed(BigDecimal.ONE);
+        nanos.addAndGet(LOCAL_TTL.toNanos() - 1);
+        assertEquals(BigDecimal.TEN, balance());
+
+        nanos.addAndGet(1);
+        assertEquals(BigDecimal.ONE, balance());
+        assertEquals(1, lookups("local_hit"));
+        assertEquals(2, lookups("miss"));
+    }
+
+    @Test
+    void evictsOnlyOnceTheTransactionCommitted() {
+        assertEquals(BigDecimal.TEN, balance());
+
+        TransactionSynchronizationManager.initSynchronization();
+        accountCache.evictAfterCommit(ACCOUNT_ID);
+        committed(BigDecimal.ONE);
+        assertEquals(BigDecimal.TEN, balance());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(BigDecimal.ONE, balance());
+    }
+
+    @Test
+    void keepsEntriesWhenTheTransactionRollsBack() {
+        assertEquals(BigDecimal.TEN, accountCache.findByOwnerEmail(OWNER).map(BankAccountResponse::balance).orElseThrow());
+
+        TransactionSynchronizationManager.initSynchronization();
+        accountCache.evictAfterCommit(ACCOUNT_ID);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(BigDecimal.TEN, accountCache.findByOwnerEmail(OWNER).map(BankAccountResponse::balance).orElseThrow());
+        assertEquals(1, lookups("local_hit"));
+    }
+
+    @Test
+    void sumsTheShardsOfShardedAccountsAfreshOnAMiss() {
+        committed(BigDecimal.TEN, 4);
+        when(bankAccountShardRepository.sumBalance(ACCOUNT_ID)).thenReturn(new BigDecimal("5"));
+        assertEquals(new BigDecimal("15"), balance());
+        assertEquals(new BigDecimal("15"), hotAccountService.balanceOf(ACCOUNT_ID, BigDecimal.TEN, 4));
+
+        when(bankAccountShardRepository.sumBalance(ACCOUNT_ID)).thenReturn(new BigDecimal("7"));
+        accountCache.evict(ACCOUNT_ID);
+        assertEquals(new BigDecimal("17"), balance());
+    }
+
+    private BigDecimal balance() {
+        return accountCache.findById(ACCOUNT_ID).map(BankAccountResponse::balance).orElseThrow();
+    }
+
+    private void committed(BigDecimal balance) {
+        committed(balance, 0);
+    }
+
+    private void committed(BigDecimal balance, int shardCount) {
+        BankAccountSummary summary = new BankAccountSummary(ACCOUNT_ID, OWNER, balance, shardCount);
+        when(bankAccountRepository.findSummaryById(ACCOUNT_ID)).thenReturn(Optional.of(summary));
+        when(bankAccountRepository.findSummaryByOwnerEmail(OWNER)).thenReturn(Optional.of(summary));
+    }
+
+    private long lookups(String result) {
+        return (long) meterRegistry.get("bank.account-cache.lookups").tag("result", result).counter().count();
+    }
+}
\ No newline at end of file
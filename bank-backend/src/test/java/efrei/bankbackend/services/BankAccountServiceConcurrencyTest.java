@@ -0,0 +1,313 @@
+package efrei.bankbackend.services;
+
+import efrei.bankbackend.contracts.BankAccountResponse;
+import efrei.bankbackend.entities.BankAccount;
+import efrei.bankbackend.entities.RoleType;
+import efrei.bankbackend.entities.UserAccount;
+import efrei.bankbackend.exceptions.InsufficientFundsException;
+import efrei.bankbackend.repositories.BankAccountRepository;
+import efrei.bankbackend.repositories.BankAccountShardRepository;
+import efrei.bankbackend.repositories.LedgerEntryRepository;
+import efrei.bankbackend.repositories.UserAccountRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Runs concurrent balance changes against an in-memory database, checking that no update is ever lost,
+ * that transfers, resharding and single operations never deadlock past their retries, and that money is conserved.
+ * The account cache and the write pipeline, which need Redis, are mocked out.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bank-account-concurrency;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({BankAccountService.class, TransactionRunner.class, LedgerService.class, HotAccountService.class})
+class BankAccountServiceConcurrencyTest {
+
+    private static final int THREADS = 100;
+
+    private static final int OPERATIONS_PER_THREAD = 20;
+
+    private static final String CLIENT = "client@efrei.net";
+
+    private static final String ADMIN = "admin@efrei.net";
+
+    private static final int HOT_ACCOUNTS = 4;
+
+    private static final int MAX_SHARDS = 4;
+
+    private static final int RESHARD_PERCENT = 1;
+
+    @MockitoBean
+    private AccountCache accountCache;
+
+    @MockitoBean
+    private AccountWritePipeline accountWritePipeline;
+
+    @MockitoBean
+    private UserAccountService userAccountService;
+
+    @Autowired
+    private BankAccountService bankAccountService;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private UserAccountRepository userAccountRepository;
+
+    @Autowired
+    private BankAccountShardRepository bankAccountShardRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @AfterEach
+    void tearDown() {
+        ledgerEntryRepository.deleteAll();
+        bankAccountShardRepository.deleteAll();
+        bankAccountRepository.deleteAll();
+        userAccountRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentCreditsAndDebitsOnOneAccountNeverLoseAnUpdate() throws InterruptedException {
+        BigDecimal initialBalance = new BigDecimal("500.00");
+        UUID accountId = createAccount(CLIENT, initialBalance);
+
+        AtomicLong appliedSum = new AtomicLong();
+        AtomicInteger appliedCount = new AtomicInteger();
+        AtomicInteger rejectedDebits = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        runConcurrently(CLIENT, RoleType.ROLE_CLIENT, failures, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                long amount = random.nextLong(1, 100);
+                try {
+                    if (random.nextBoolean()) {
+                        bankAccountService.credit(accountId, BigDecimal.valueOf(amount));
+                        appliedSum.addAndGet(amount);
+                    } else {
+                        bankAccountService.debit(accountId, BigDecimal.valueOf(amount));
+                        appliedSum.addAndGet(-amount);
+                    }
+                    appliedCount.incrementAndGet();
+                } catch (InsufficientFundsException e) {
+                    rejectedDebits.incrementAndGet();
+                }
+            }
+        });
+
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures: " + failures);
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, appliedCount.get() + rejectedDebits.get());
+
+        BigDecimal balance = bankAccountRepository.findById(accountId).orElseThrow().getBalance();
+        assertEquals(0, initialBalance.add(BigDecimal.valueOf(appliedSum.get())).compareTo(balance),
+                () -> "Expected " + initialBalance.add(BigDecimal.valueOf(appliedSum.get())) + " but was " + balance);
+        assertTrue(balance.signum() >= 0);
+        assertEquals(appliedCount.get(), ledgerEntries(accountId));
+    }
+
+    @Test
+    void concurrentTransfersBetweenHotAccountsConserveMoneyWithoutDeadlocks() throws InterruptedException {
+        BigDecimal initialBalance = new BigDecimal("100000.00");
+        List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < HOT_ACCOUNTS; i++) {
+            UUID accountId = createAccount("hot-" + i + "@efrei.net", initialBalance);
+            given(accountCache.findById(accountId))
+                    .willReturn(Optional.of(new BankAccountResponse(accountId, "hot-" + i + "@efrei.net", initialBalance)));
+            accountIds.add(accountId);
+        }
+
+        AtomicInteger appliedCount = new AtomicInteger();
+        AtomicInteger rejectedCount = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        runConcurrently(ADMIN, RoleType.ROLE_ADMIN, failures, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int source = random.nextInt(HOT_ACCOUNTS);
+                int target = (source + 1 + random.nextInt(HOT_ACCOUNTS - 1)) % HOT_ACCOUNTS;
+                BigDecimal amount = BigDecimal.valueOf(random.nextLong(1000, 1500));
+                try {
+                    bankAccountService.transfer(accountIds.get(source), accountIds.get(target), amount);
+                    appliedCount.incrementAndGet();
+                } catch (InsufficientFundsException e) {
+                    rejectedCount.incrementAndGet();
+                }
+            }
+        });
+
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures, such as deadlocks out of retries: " + failures);
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, appliedCount.get() + rejectedCount.get());
+
+        BigDecimal total = BigDecimal.ZERO;
+        int entries = 0;
+        for (UUID accountId : accountIds) {
+            BigDecimal balance = bankAccountRepository.findById(accountId).orElseThrow().getBalance();
+            assertTrue(balance.signum() >= 0, () -> "Account " + accountId + " was overdrawn: " + balance);
+            total = total.add(balance);
+            entries += ledgerEntries(accountId);
+        }
+
+        BigDecimal expectedTotal = initialBalance.multiply(BigDecimal.valueOf(HOT_ACCOUNTS));
+        assertEquals(0, expectedTotal.compareTo(total), "Expected " + expectedTotal + " in total but was " + total);
+        assertEquals(2 * appliedCount.get(), entries);
+    }
+
+    @Test
+    void concurrentTransfersReshardsAndSingleOperationsOnShardedAccountsConserveMoneyWithoutDeadlocks()
+            throws Exception {
+        BigDecimal initialBalance = new BigDecimal("100000.00");
+        List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < HOT_ACCOUNTS; i++) {
+            UUID accountId = createAccount("hot-" + i + "@efrei.net", initialBalance);
+            given(accountCache.findById(accountId))
+                    .willReturn(Optional.of(new BankAccountResponse(accountId, "hot-" + i + "@efrei.net", initialBalance)));
+            bankAccountService.reshard(accountId, MAX_SHARDS);
+            accountIds.add(accountId);
+        }
+
+        AtomicLong appliedSum = new AtomicLong();
+        AtomicInteger ledgerWrites = new AtomicInteger();
+        AtomicInteger appliedCount = new AtomicInteger();
+        AtomicInteger rejectedCount = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        runConcurrently(ADMIN, RoleType.ROLE_ADMIN, failures, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int account = random.nextInt(HOT_ACCOUNTS);
+                UUID accountId = accountIds.get(account);
+                long amount = random.nextLong(1000, 1500);
+                try {
+                    int operation = random.nextInt(100);
+                    if (operation < RESHARD_PERCENT) {
+                        bankAccountService.reshard(accountId, random.nextInt(MAX_SHARDS + 1));
+                    } else if (operation < 40) {
+                        int target = (account + 1 + random.nextInt(HOT_ACCOUNTS - 1)) % HOT_ACCOUNTS;
+                        bankAccountService.transfer(accountId, accountIds.get(target), BigDecimal.valueOf(amount));
+                        ledgerWrites.addAndGet(2);
+                    } else if (operation < 70) {
+                        bankAccountService.credit(accountId, BigDecimal.valueOf(amount));
+                        appliedSum.addAndGet(amount);
+                        ledgerWrites.incrementAndGet();
+                    } else {
+                        bankAccountService.debit(accountId, BigDecimal.valueOf(amount));
+                        appliedSum.addAndGet(-amount);
+                        ledgerWrites.incrementAndGet();
+                    }
+                    appliedCount.incrementAndGet();
+                } catch (InsufficientFundsException e) {
+                    rejectedCount.incrementAndGet();
+                }
+            }
+        });
+
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures, such as deadlocks out of retries: " + failures);
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, appliedCount.get() + rejectedCount.get());
+
+        BigDecimal total = BigDecimal.ZERO;
+        int entries = 0;
+        for (UUID accountId : accountIds) {
+            BankAccount account = bankAccountRepository.findById(accountId).orElseThrow();
+            BigDecimal balance = account.getBalance().add(bankAccountShardRepository.sumBalance(accountId));
+            assertTrue(balance.signum() >= 0, () -> "Account " + accountId + " was overdrawn: " + balance);
+            assertEquals(account.getShardCount(), bankAccountShardRepository.findBalancesByAccountId(accountId).size());
+            total = total.add(balance);
+            entries += ledgerEntries(accountId);
+        }
+
+        BigDecimal expectedTotal = initialBalance.multiply(BigDecimal.valueOf(HOT_ACCOUNTS)).add(BigDecimal.valueOf(appliedSum.get()));
+        assertEquals(0, expectedTotal.compareTo(total), "Expected " + expectedTotal + " in total but was " + total);
+        assertEquals(ledgerWrites.get(), entries);
+    }
+
+    private UUID createAccount(String email, BigDecimal balance) {
+        UserAccount owner = new UserAccount();
+        owner.setName(email);
+        owner.setEmail(email);
+        owner.setPassword("unused");
+        owner.setRole(RoleType.ROLE_CLIENT);
+        userAccountRepository.save(owner);
+
+        BankAccount account = new BankAccount();
+        account.setOwner(owner);
+        account.setOwnerEmail(email);
+        account.setBalance(balance);
+        return bankAccountRepository.save(account).getId();
+    }
+
+    private int ledgerEntries(UUID accountId) {
+        return ledgerEntryRepository.findLatest(accountId, Limit.of(THREADS * OPERATIONS_PER_THREAD + 1)).size();
+    }
+
+    /**
+     * Runs a task on {@link #THREADS} threads released at once, each authenticated as the given user.
+     */
+    private static void runConcurrently(String email, RoleType role, Queue<Throwable> failures, Task task)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        for (int i = 0; i < THREADS; i++) {
+            executor.execute(() -> {
+                SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(email, null, role.name()));
+                try {
+                    start.await();
+                    task.run();
+                } catch (Throwable e) {
+                    failures.add(e);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        assertTrue(done.await(2, TimeUnit.MINUTES), "Operations did not complete in time");
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws Exception;
+    }
+}
\ No newline at end of file
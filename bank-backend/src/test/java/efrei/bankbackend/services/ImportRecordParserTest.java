@@ -0,0 +1,41 @@
+package efrei.bankbackend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImportRecordParserTest {
+
+    @Test
+    void splitsQuotedCsvFields() {
+        assertEquals(List.of("Alonso, Cédric", "cedric@efrei.net", "pa\"ss", ""),
+                ImportRecordParser.csvFields("\"Alonso, Cédric\",cedric@efrei.net,\"pa\"\"ss\","));
+    }
+
+    @Test
+    void rejectsUnterminatedCsvQuotes() {
+        assertThrows(IllegalArgumentException.class, () -> ImportRecordParser.csvFields("\"Cédric,cedric@efrei.net"));
+    }
+
+    @Test
+    void parsesFlatJsonObjects() {
+        Map<String, String> fields = ImportRecordParser.jsonFields(
+                " { \"name\" : \"C\\u00e9dric \\\"C\\\"\", \"email\":\"cedric@efrei.net\", \"role\": null } ");
+
+        assertEquals("Cédric \"C\"", fields.get("name"));
+        assertEquals("cedric@efrei.net", fields.get("email"));
+        assertNull(fields.get("role"));
+    }
+
+    @Test
+    void rejectsNestedOrTruncatedJson() {
+        assertThrows(IllegalArgumentException.class, () -> ImportRecordParser.jsonFields("{\"name\":{\"first\":\"C\"}}"));
+        assertThrows(IllegalArgumentException.class, () -> ImportRecordParser.jsonFields("{\"name\":\"C\""));
+        assertThrows(IllegalArgumentException.class, () -> ImportRecordParser.jsonFields("{\"name\":\"C\"} trailing"));
+    }
+}
\ No newline at end of file
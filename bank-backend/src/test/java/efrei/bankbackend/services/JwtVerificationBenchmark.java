@@ -0,0 +1,110 @@
+package efrei.bankbackend.services;
+
+import efrei.bankbackend.entities.RoleType;
+import efrei.bankbackend.entities.UserAccount;
+import efrei.bankbackend.exceptions.TokenInvalidException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the token work done by the JWT filter on every authenticated request.
+ *
+ * <p>{@code formerFilter} replays what the filter used to do: decode the key and build a parser for
+ * each of the three claim extractions of a request. The others go through {@link JwtService#verify(String)},
+ * once with the token already verified, as for every request but the first of a session, and once with
+ * a cache holding nothing, as for the first one. Revocation checks read local state and are left out.
+ * Run with {@code mvn test-compile} followed by {@link #main(String[])} on the test classpath.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class JwtVerificationBenchmark {
+
+    private String secretKey;
+
+    private String token;
+
+    private JwtService cachingService;
+
+    private JwtService nonCachingService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        secretKey = Encoders.BASE64.encode(key);
+
+        cachingService = jwtService(10_000);
+        nonCachingService = jwtService(0);
+
+        UserAccount userAccount = new UserAccount();
+        userAccount.setEmail("client@efrei.net");
+        userAccount.setRole(RoleType.ROLE_CLIENT);
+        token = cachingService.generateToken(userAccount, "family");
+    }
+
+    @Benchmark
+    public boolean formerFilter() {
+        String username = formerExtractClaims(token).getSubject();
+        return username.equals(formerExtractClaims(token).getSubject())
+                && !formerExtractClaims(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public JwtClaims verifyCached() throws TokenInvalidException {
+        return cachingService.verify(token);
+    }
+
+    @Benchmark
+    public JwtClaims verifyFirstSeen() throws TokenInvalidException {
+        return nonCachingService.verify(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtVerificationBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private JwtService jwtService(long verifiedCacheSize) {
+        JwtService jwtService = new JwtService(null, null);
+        ReflectionTestUtils.setField(jwtService, "secretKey", secretKey);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", verifiedCacheSize);
+        jwtService.init();
+        return jwtService;
+    }
+
+    private Claims formerExtractClaims(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
\ No newline at end of file
@@ -1,4 +1,5 @@
 import { ActionType } from "../types/ActionType";
+import type { BankAccount } from "../types/BankAccount";
 import { api } from "./api";
 
 export const createBankAccount = async (ownerEmail: string) => {
@@ -6,8 +7,16 @@ export const createBankAccount = async (ownerEmail: string) => {
 };
 
 export const getAllAccounts = async () => {
-    const { data } = await api.get("/bank/accounts/all");
-    return data;
+    const accounts: BankAccount[] = [];
+    let cursor: string | null = null;
+
+    do {
+        const { data } = await api.get("/bank/accounts/all", { params: { cursor, size: 200 } });
+        accounts.push(...data.items);
+        cursor = data.nextCursor;
+    } while (cursor);
+
+    return accounts;
 };
 
 export const getMyAccount = async () => {